@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.edgexfoundry.domain.meta.ResourceOperation;
+
+/**
+ * Immutable snapshot of the commands of every device of the service: the command table of each
+ * device, keyed by device name in an open addressing table. A lookup hashes the device name, which
+ * strings cache, and then the command name within the device's table, without allocating.
+ * 
+ * @author Jim White
+ *
+ */
+public final class CommandIndex {
+
+  public static final CommandIndex EMPTY = new CommandIndex(Collections.emptyMap());
+
+  private final String[] deviceNames;
+
+  private final CommandTable[] tables;
+
+  private final int mask;
+
+  private final int size;
+
+  /**
+   * @param tables command table of each device keyed by device name
+   */
+  public CommandIndex(Map<String, CommandTable> tables) {
+    int capacity = Integer.highestOneBit(Math.max(tables.size() * 2, 2) - 1) << 1;
+    deviceNames = new String[capacity];
+    this.tables = new CommandTable[capacity];
+    mask = capacity - 1;
+    size = tables.size();
+
+    for (Map.Entry<String, CommandTable> table : tables.entrySet()) {
+      int index = spread(table.getKey().hashCode()) & mask;
+      while (deviceNames[index] != null) {
+        index = (index + 1) & mask;
+      }
+      deviceNames[index] = table.getKey();
+      this.tables[index] = table.getValue();
+    }
+  }
+
+  /**
+   * @param deviceName name of the device
+   * @param command name of the command, in any case
+   * @param operation get or set, in any case
+   * @return the command's operations, empty if it has none of the kind, null if the device, the
+   *         command or the operation kind is unknown
+   */
+  public ResourceOperation[] getOperations(String deviceName, String command, String operation) {
+    CommandTable table = getTable(deviceName);
+    return table == null ? null : table.getOperations(command, operation);
+  }
+
+  /**
+   * @return the device's command table, null if the device is unknown
+   */
+  public CommandTable getTable(String deviceName) {
+    if (deviceName == null) {
+      return null;
+    }
+    int index = spread(deviceName.hashCode()) & mask;
+    String name;
+    while ((name = deviceNames[index]) != null) {
+      if (name.equals(deviceName)) {
+        return tables[index];
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.edgexfoundry.domain.meta.ResourceOperation;
+
+/**
+ * The get and set operations of each command (profile resource) of a device, compiled into an
+ * open addressing table. Command names are matched regardless of case by folding each character
+ * as it is hashed and compared, so lookups allocate nothing. Tables are immutable and shared by the
+ * devices of a profile.
+ * 
+ * The operation arrays are returned as held and must not be changed.
+ * 
+ * @author Jim White
+ *
+ */
+public final class CommandTable {
+
+  public static final CommandTable EMPTY = new CommandTable(Collections.emptyMap());
+
+  private static final ResourceOperation[] NONE = new ResourceOperation[0];
+
+  private final String[] names;
+
+  private final ResourceOperation[][] gets;
+
+  private final ResourceOperation[][] sets;
+
+  private final int mask;
+
+  private final int size;
+
+  /**
+   * @param commands operations of each command keyed by command name, then get or set, as held by
+   *        ProfileStore.getCommands(); other operation keys are ignored
+   */
+  public CommandTable(Map<String, Map<String, List<ResourceOperation>>> commands) {
+    int capacity = Integer.highestOneBit(Math.max(commands.size() * 2, 2) - 1) << 1;
+    names = new String[capacity];
+    gets = new ResourceOperation[capacity][];
+    sets = new ResourceOperation[capacity][];
+    mask = capacity - 1;
+    size = commands.size();
+
+    for (Map.Entry<String, Map<String, List<ResourceOperation>>> command : commands.entrySet()) {
+      int index = hash(command.getKey()) & mask;
+      while (names[index] != null) {
+        index = (index + 1) & mask;
+      }
+      names[index] = command.getKey();
+      gets[index] = toArray(command.getValue(), "get");
+      sets[index] = toArray(command.getValue(), "set");
+    }
+  }
+
+  private static ResourceOperation[] toArray(Map<String, List<ResourceOperation>> operations,
+      String operation) {
+    List<ResourceOperation> list = operations == null ? null : operations.get(operation);
+    return list == null || list.isEmpty() ? NONE : list.toArray(new ResourceOperation[0]);
+  }
+
+  /**
+   * @param command name of the command, in any case
+   * @param operation get or set, in any case
+   * @return the command's operations, empty if it has none of the kind, null if there is no such
+   *         command or operation kind
+   */
+  public ResourceOperation[] getOperations(String command, String operation) {
+    boolean set;
+    if ("get".equalsIgnoreCase(operation)) {
+      set = false;
+    } else if ("set".equalsIgnoreCase(operation)) {
+      set = true;
+    } else {
+      return null;
+    }
+
+    int index = find(command);
+    if (index < 0) {
+      return null;
+    }
+    return set ? sets[index] : gets[index];
+  }
+
+  /**
+   * @return whether the device has the command, matched regardless of case
+   */
+  public boolean hasCommand(String command) {
+    return find(command) >= 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int find(String command) {
+    if (command == null) {
+      return -1;
+    }
+    int index = hash(command) & mask;
+    String name;
+    while ((name = names[index]) != null) {
+      if (matches(name, command)) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int hash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean matches(String name, String command) {
+    if (name.length() != command.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (Character.toLowerCase(name.charAt(i)) != Character.toLowerCase(command.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+/**
+ * Range within which a new value of a value descriptor is considered unchanged from the previous
+ * value and is not stored. A value is suppressed when it differs from the previous value by no more
+ * than the absolute deadband or by no more than the percentage of the previous value. With both
+ * left at zero only exact duplicates are suppressed.
+ * 
+ * @author Jim White
+ *
+ */
+public class Deadband {
+
+  private double absolute;
+  private double percent;
+
+  public Deadband() {}
+
+  public Deadband(double absolute, double percent) {
+    this.absolute = absolute;
+    this.percent = percent;
+  }
+
+  public double getAbsolute() {
+    return absolute;
+  }
+
+  public void setAbsolute(double absolute) {
+    this.absolute = absolute;
+  }
+
+  public double getPercent() {
+    return percent;
+  }
+
+  public void setPercent(double percent) {
+    this.percent = percent;
+  }
+
+  /**
+   * @return true if the value is within the deadband of the previous value
+   */
+  public boolean suppresses(double previous, double value) {
+    double difference = Math.abs(value - previous);
+    return difference <= absolute || difference <= Math.abs(previous) * percent / 100;
+  }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+/**
+ * What the object store holds for a single device.
+ * 
+ * @author Jim White
+ *
+ */
+public class DeviceUsage {
+
+  private final String deviceId;
+  private final int objects;
+  private final int responses;
+  private final long bytes;
+
+  /**
+   * @param deviceId id of the device
+   * @param objects number of object histories held
+   * @param responses number of operation responses held
+   * @param bytes estimated heap bytes held
+   */
+  public DeviceUsage(String deviceId, int objects, int responses, long bytes) {
+    this.deviceId = deviceId;
+    this.objects = objects;
+    this.responses = responses;
+    this.bytes = bytes;
+  }
+
+  public String getDeviceId() {
+    return deviceId;
+  }
+
+  public int getObjects() {
+    return objects;
+  }
+
+  public int getResponses() {
+    return responses;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return "DeviceUsage [deviceId=" + deviceId + ", objects=" + objects + ", responses="
+        + responses + ", bytes=" + bytes + "]";
+  }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+/**
+ * Distribution of the durations recorded for an operation, read from a latency histogram. The
+ * percentiles are accurate to within the histogram's bucket width (about 6% of the value).
+ * Durations are in nanoseconds.
+ * 
+ * @author Jim White
+ *
+ */
+public class LatencySummary {
+
+  private final long count;
+  private final double rate;
+  private final double mean;
+  private final long p50;
+  private final long p90;
+  private final long p99;
+  private final long p999;
+  private final long max;
+
+  /**
+   * @param count number of durations recorded
+   * @param rate recordings per second since recording started
+   * @param mean mean duration, NaN if none were recorded
+   * @param p50 median duration
+   * @param p90 90th percentile duration
+   * @param p99 99th percentile duration
+   * @param p999 99.9th percentile duration
+   * @param max longest duration
+   */
+  public LatencySummary(long count, double rate, double mean, long p50, long p90, long p99,
+      long p999, long max) {
+    this.count = count;
+    this.rate = rate;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public long getP50() {
+    return p50;
+  }
+
+  public long getP90() {
+    return p90;
+  }
+
+  public long getP99() {
+    return p99;
+  }
+
+  public long getP999() {
+    return p999;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencySummary [count=" + count + ", rate=" + rate + ", mean=" + mean + ", p50=" + p50
+        + ", p90=" + p90 + ", p99=" + p99 + ", p999=" + p999 + ", max=" + max + "]";
+  }
+}
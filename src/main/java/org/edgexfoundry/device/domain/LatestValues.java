@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Latest values of the same objects across many devices, as a table: one column per object and
+ * one row per device. Names are held once rather than repeated for every value.
+ * 
+ * @author Jim White
+ *
+ */
+public class LatestValues {
+
+  private final List<String> objects;
+  private final List<String> devices;
+  private final String[][] values;
+
+  /**
+   * @param objects name of each column's object
+   * @param devices name of each row's device
+   * @param values row of values of each device, null where a device has no value for an object
+   */
+  public LatestValues(List<String> objects, List<String> devices, String[][] values) {
+    this.objects = objects;
+    this.devices = devices;
+    this.values = values;
+  }
+
+  public List<String> getObjects() {
+    return objects;
+  }
+
+  public List<String> getDevices() {
+    return devices;
+  }
+
+  /**
+   * @return the value of the device's object, null if the device has no value for it
+   */
+  public String getValue(int device, int object) {
+    return values[device][object];
+  }
+
+  /**
+   * @return the value of the named device's object, null if the device or object is not in the
+   *         table or has no value
+   */
+  public String getValue(String device, String object) {
+    int row = devices.indexOf(device);
+    int column = objects.indexOf(object);
+    return row < 0 || column < 0 ? null : values[row][column];
+  }
+
+  public int size() {
+    return devices.size();
+  }
+
+  @Override
+  public String toString() {
+    return "LatestValues [objects=" + objects + ", devices=" + devices + ", values="
+        + Arrays.deepToString(values) + "]";
+  }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.edgexfoundry.domain.common.IoTType;
+
+/**
+ * The service objects a resource operation reads or writes on a particular device, resolved once
+ * against the device's profile and value descriptors. Object names are the names values are stored
+ * and reported under (the operation's parameter when it names a value descriptor), and value types
+ * are the types of their value descriptors (null when unknown). The operation id is the key of the
+ * operation's readings in the object store's response cache.
+ * 
+ * A plan bound to a symbol table also carries the symbol of each object name and of the operation
+ * id, which the stores key their internal data on, and the dense slot of the device it was
+ * resolved for.
+ * 
+ * @author Jim White
+ *
+ */
+public class OperationPlan {
+
+  public static final OperationPlan EMPTY =
+      new OperationPlan(Collections.emptyList(), Collections.emptyList());
+
+  private final List<ServiceObject> objects;
+
+  private final List<String> objectNames;
+
+  private final List<IoTType> valueTypes;
+
+  private final String operationId;
+
+  private final int[] objectSymbols;
+
+  private final int operationSymbol;
+
+  private final int deviceSlot;
+
+  public OperationPlan(List<ServiceObject> objects, List<String> objectNames) {
+    this(objects, objectNames, new ArrayList<>(Collections.nCopies(objectNames.size(), null)));
+  }
+
+  public OperationPlan(List<ServiceObject> objects, List<String> objectNames,
+      List<IoTType> valueTypes) {
+    this(objects, objectNames, valueTypes, null, -1, -1);
+  }
+
+  private OperationPlan(List<ServiceObject> objects, List<String> objectNames,
+      List<IoTType> valueTypes, int[] objectSymbols, int operationSymbol, int deviceSlot) {
+    this.objects = Collections.unmodifiableList(objects);
+    this.objectNames = Collections.unmodifiableList(objectNames);
+    this.valueTypes = Collections.unmodifiableList(valueTypes);
+    this.operationId = objectNames.toString();
+    this.objectSymbols = objectSymbols;
+    this.operationSymbol = operationSymbol;
+    this.deviceSlot = deviceSlot;
+  }
+
+  /**
+   * Copy of this plan carrying the given symbols.
+   * 
+   * @param objectSymbols symbol of each object name, in the same order
+   * @param operationSymbol symbol of the operation id
+   */
+  public OperationPlan bind(int[] objectSymbols, int operationSymbol) {
+    return new OperationPlan(objects, objectNames, valueTypes, objectSymbols.clone(),
+        operationSymbol, deviceSlot);
+  }
+
+  /**
+   * Copy of this plan carrying the slot of the device it was resolved for.
+   * 
+   * @param deviceSlot the device's slot, -1 if it has none
+   */
+  public OperationPlan forDevice(int deviceSlot) {
+    return new OperationPlan(objects, objectNames, valueTypes, objectSymbols, operationSymbol,
+        deviceSlot);
+  }
+
+  public List<ServiceObject> getObjects() {
+    return objects;
+  }
+
+  public List<String> getObjectNames() {
+    return objectNames;
+  }
+
+  public List<IoTType> getValueTypes() {
+    return valueTypes;
+  }
+
+  public String getOperationId() {
+    return operationId;
+  }
+
+  public boolean isBound() {
+    return objectSymbols != null;
+  }
+
+  /**
+   * @return symbol of the object name at the index, only for bound plans
+   */
+  public int getObjectSymbol(int index) {
+    return objectSymbols[index];
+  }
+
+  /**
+   * @return symbol of the operation id, -1 if the plan is not bound
+   */
+  public int getOperationSymbol() {
+    return operationSymbol;
+  }
+
+  /**
+   * @return slot of the device the plan was resolved for, -1 if it has none
+   */
+  public int getDeviceSlot() {
+    return deviceSlot;
+  }
+
+  public boolean isEmpty() {
+    return objectNames.isEmpty();
+  }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+/**
+ * Aggregate of the numeric values of a device object captured within a time window.
+ * 
+ * @author Jim White
+ *
+ */
+public class Rollup {
+
+  private final long start;
+  private final long end;
+  private final long count;
+  private final double min;
+  private final double max;
+  private final double sum;
+
+  /**
+   * @param start start of the window in milliseconds since the epoch, inclusive
+   * @param end end of the window in milliseconds since the epoch, exclusive
+   * @param count number of values captured in the window
+   * @param min smallest value
+   * @param max largest value
+   * @param sum sum of the values
+   */
+  public Rollup(long start, long end, long count, double min, double max, double sum) {
+    this.start = start;
+    this.end = end;
+    this.count = count;
+    this.min = min;
+    this.max = max;
+    this.sum = sum;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public double getSum() {
+    return sum;
+  }
+
+  /**
+   * @return the mean of the values, NaN if the window holds none
+   */
+  public double getAverage() {
+    return count == 0 ? Double.NaN : sum / count;
+  }
+
+  @Override
+  public String toString() {
+    return "Rollup [start=" + start + ", end=" + end + ", count=" + count + ", min=" + min
+        + ", max=" + max + ", average=" + getAverage() + "]";
+  }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain;
+
+import java.util.List;
+
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.domain.meta.Device;
+
+/**
+ * Selects the object store puts delivered to a subscription. Each criteria left null matches
+ * anything, so an empty filter receives every put.
+ * 
+ * @author Jim White
+ *
+ */
+public class SubscriptionFilter {
+
+  private String deviceName;
+  private String objectName;
+  private String profileName;
+
+  public SubscriptionFilter() {}
+
+  public SubscriptionFilter(String deviceName, String objectName, String profileName) {
+    this.deviceName = deviceName;
+    this.objectName = objectName;
+    this.profileName = profileName;
+  }
+
+  public String getDeviceName() {
+    return deviceName;
+  }
+
+  public void setDeviceName(String deviceName) {
+    this.deviceName = deviceName;
+  }
+
+  public String getObjectName() {
+    return objectName;
+  }
+
+  public void setObjectName(String objectName) {
+    this.objectName = objectName;
+  }
+
+  public String getProfileName() {
+    return profileName;
+  }
+
+  public void setProfileName(String profileName) {
+    this.profileName = profileName;
+  }
+
+  /**
+   * @return true if the device matches and, when an object is given, one of the readings is of
+   *         that object
+   */
+  public boolean matches(Device device, List<Reading> readings) {
+    if (deviceName != null && !deviceName.equals(device.getName())) {
+      return false;
+    }
+
+    if (profileName != null
+        && (device.getProfile() == null || !profileName.equals(device.getProfile().getName()))) {
+      return false;
+    }
+
+    if (objectName != null) {
+      for (Reading reading : readings) {
+        if (objectName.equals(reading.getName())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.domain.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.edgexfoundry.device.domain.Deadband;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Object representing the write deadbands of value descriptors as determined by configuration
+ * settings.
+ * 
+ * Each property is a comma separated list with one element per value descriptor named in
+ * data.deadband.descriptor. An empty absolute or percent element is treated as zero, so a
+ * descriptor listed without either only has its exact duplicates suppressed.
+ * 
+ * @author Jim
+ *
+ */
+@Component
+public class DeadbandConfiguration {
+
+  @Value("${data.deadband.descriptor:#{null}}")
+  private String[] descriptors = {};
+  @Value("${data.deadband.absolute:#{null}}")
+  private String[] absolutes;
+  @Value("${data.deadband.percent:#{null}}")
+  private String[] percents;
+
+  private Map<String, Deadband> deadbands;
+
+  public int getSize() {
+    return descriptors == null ? 0 : descriptors.length;
+  }
+
+  public String[] getDescriptors() {
+    if (descriptors == null)
+      descriptors = new String[getSize()];
+    return descriptors;
+  }
+
+  public void setDescriptors(String[] descriptors) {
+    if (descriptors != null)
+      this.descriptors = descriptors;
+    deadbands = null;
+  }
+
+  public String[] getAbsolutes() {
+    if (absolutes == null)
+      absolutes = new String[getSize()];
+    return absolutes;
+  }
+
+  public void setAbsolutes(String[] absolutes) {
+    if (absolutes != null)
+      this.absolutes = absolutes;
+    deadbands = null;
+  }
+
+  public String[] getPercents() {
+    if (percents == null)
+      percents = new String[getSize()];
+    return percents;
+  }
+
+  public void setPercents(String[] percents) {
+    if (percents != null)
+      this.percents = percents;
+    deadbands = null;
+  }
+
+  /**
+   * @return the deadband of each configured value descriptor keyed by descriptor name
+   */
+  public Map<String, Deadband> getDeadbands() {
+    if (deadbands == null) {
+      Map<String, Deadband> configured = new HashMap<>();
+      for (int i = 0; i < getSize(); i++) {
+        configured.put(getDescriptors()[i].trim(),
+            new Deadband(parse(getAbsolutes(), i), parse(getPercents(), i)));
+      }
+      deadbands = Collections.unmodifiableMap(configured);
+    }
+    return deadbands;
+  }
+
+  private double parse(String[] values, int index) {
+    if (index >= values.length || values[index] == null || values[index].trim().isEmpty())
+      return 0;
+    return Double.parseDouble(values[index].trim());
+  }
+
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.edgexfoundry.controller.EventClient;
+import org.edgexfoundry.device.store.ObjectStore;
+import org.edgexfoundry.device.store.ObjectStoreListener;
+import org.edgexfoundry.device.store.Subscription;
+import org.edgexfoundry.domain.core.Event;
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects readings per device into events and sends them in batches, so that a device read costs
+ * a share of one request instead of one request per reading. A device's batch is sent once it
+ * holds data.export.batch.size readings, or when the flush interval passes, whichever comes first.
+ * 
+ * At most data.export.concurrency batches are sent at once and at most data.export.pending batches
+ * may be queued or in flight. Once that many are outstanding, a device's batch is held back rather
+ * than block the caller and goes out with the device's next batch or flush. Each device holds at
+ * most data.export.held readings; only the oldest readings past that are dropped and counted (see
+ * {@link #getDropped}), so a slow sink neither stalls the producers nor grows the backlog without
+ * bound. A batch the sink fails to send is tried again up to data.export.retries times.
+ * 
+ * The exporter does nothing unless data.export.enabled is set; it then starts its threads and
+ * subscribes to the object store to export every stored reading. The sink defaults to core-data
+ * through the service's {@link EventClient}; services may provide their own {@link EventSink} bean
+ * instead.
+ *
+ * @author Jim White
+ *
+ */
+@Component
+public class EventExporter implements ObjectStoreListener {
+
+  private static final EdgeXLogger logger = EdgeXLoggerFactory.getEdgeXLogger(EventExporter.class);
+
+  @Value("${data.export.enabled:false}")
+  private boolean enabled;
+
+  @Value("${data.export.batch.size:100}")
+  private int batchSize;
+
+  @Value("${data.export.batch.interval:1000}")
+  private long flushInterval;
+
+  @Value("${data.export.concurrency:4}")
+  private int concurrency;
+
+  @Value("${data.export.pending:16}")
+  private int pendingLimit;
+
+  @Value("${data.export.held:1000}")
+  private int heldLimit;
+
+  @Value("${data.export.retries:1}")
+  private int retries;
+
+  @Autowired(required = false)
+  private EventSink eventSink;
+
+  @Autowired(required = false)
+  private EventClient eventClient;
+
+  @Autowired(required = false)
+  private ObjectStore objectStore;
+
+  private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+  private final AtomicLong sent = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private Semaphore pending;
+
+  private ExecutorService senders;
+
+  private ScheduledExecutorService flusher;
+
+  private Subscription subscription;
+
+  @PostConstruct
+  public void initialize() {
+    if (!enabled) {
+      return;
+    }
+
+    if (eventSink == null && eventClient != null) {
+      eventSink = new CoreDataEventSink(eventClient);
+    }
+
+    if (eventSink == null) {
+      logger.info("No event sink available, readings will not be exported");
+      return;
+    }
+
+    pending = new Semaphore(Math.max(pendingLimit, 1));
+    senders = Executors.newFixedThreadPool(Math.max(concurrency, 1), runnable -> {
+      Thread thread = new Thread(runnable, "event-exporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "event-exporter-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long interval = Math.max(flushInterval, 1);
+    flusher.scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+
+    if (objectStore != null) {
+      subscription = objectStore.subscribe(this, null);
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    if (subscription != null) {
+      subscription.cancel();
+      subscription = null;
+    }
+
+    if (flusher == null) {
+      return;
+    }
+
+    flusher.shutdownNow();
+    flush();
+    senders.shutdown();
+    try {
+      if (!senders.awaitTermination(flushInterval, TimeUnit.MILLISECONDS)) {
+        logger.error("Event exporter closed with batches still being sent");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void onReadings(Device device, List<Reading> readings) {
+    export(device.getName(), readings);
+  }
+
+  /**
+   * Add readings to the device's batch, sending the batch if it is full. The batch is held back if
+   * the number of batches waiting to be sent is at its limit. Does nothing unless the exporter is
+   * enabled.
+   * 
+   * @param deviceName name of the device the readings are from
+   * @param readings the readings
+   */
+  public void export(String deviceName, List<Reading> readings) {
+    if (senders == null || readings == null || readings.isEmpty()) {
+      return;
+    }
+
+    Batch batch = batches.computeIfAbsent(deviceName, name -> new Batch());
+    List<Reading> full = null;
+
+    synchronized (batch) {
+      batch.readings.addAll(readings);
+      if (batch.readings.size() >= batchSize) {
+        full = batch.drain();
+      }
+    }
+
+    if (full != null) {
+      submit(deviceName, full);
+    }
+  }
+
+  /**
+   * Send every device's readings collected so far.
+   */
+  public void flush() {
+    for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+      List<Reading> readings;
+      synchronized (entry.getValue()) {
+        if (entry.getValue().readings.isEmpty()) {
+          continue;
+        }
+        readings = entry.getValue().drain();
+      }
+      submit(entry.getKey(), readings);
+    }
+  }
+
+  /**
+   * @return number of batches sent
+   */
+  public long getSent() {
+    return sent.get();
+  }
+
+  /**
+   * @return number of readings dropped because their device held too many waiting to be sent
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return number of batches the sink failed to send
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  private void submit(String deviceName, List<Reading> readings) {
+    if (!pending.tryAcquire()) {
+      hold(deviceName, readings);
+      return;
+    }
+
+    try {
+      senders.execute(() -> send(deviceName, readings));
+    } catch (RejectedExecutionException e) {
+      pending.release();
+      failed.incrementAndGet();
+      logger.error("Event exporter is shut down, dropped " + readings.size() + " readings of "
+          + deviceName);
+    }
+  }
+
+  /**
+   * Put readings that could not be submitted back in front of the device's batch, dropping the
+   * oldest readings past the device's limit.
+   */
+  private void hold(String deviceName, List<Reading> readings) {
+    Batch batch = batches.computeIfAbsent(deviceName, name -> new Batch());
+    int excess;
+
+    synchronized (batch) {
+      List<Reading> held = new ArrayList<>(readings);
+      held.addAll(batch.readings);
+      excess = held.size() - Math.max(heldLimit, batchSize);
+      if (excess > 0) {
+        held.subList(0, excess).clear();
+      }
+      batch.readings = held;
+    }
+
+    if (excess > 0) {
+      dropped.addAndGet(excess);
+      logger.error("Event sink is behind, dropped " + excess + " readings of " + deviceName);
+    }
+  }
+
+  private void send(String deviceName, List<Reading> readings) {
+    try {
+      for (int attempt = 0;; attempt++) {
+        try {
+          eventSink.send(new Event(deviceName, readings));
+          sent.incrementAndGet();
+          return;
+        } catch (RuntimeException e) {
+          if (attempt >= retries) {
+            failed.incrementAndGet();
+            logger.error("Could not export " + readings.size() + " readings of " + deviceName
+                + ": " + e.getMessage());
+            return;
+          }
+          logger.debug("Retrying export of " + deviceName + ": " + e.getMessage());
+        }
+      }
+    } finally {
+      pending.release();
+    }
+  }
+
+  private static final class Batch {
+
+    private List<Reading> readings = new ArrayList<>();
+
+    List<Reading> drain() {
+      List<Reading> drained = readings;
+      readings = new ArrayList<>();
+      return drained;
+    }
+  }
+}
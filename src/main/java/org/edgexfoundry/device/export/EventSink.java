@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.export;
+
+import org.edgexfoundry.domain.core.Event;
+
+/**
+ * Destination of the event batches built by the {@link EventExporter}. Implementations may block
+ * while sending; the exporter limits how many sends run at once.
+ *
+ * @author Jim White
+ *
+ */
+public interface EventSink {
+
+  /**
+   * Send one batch of readings.
+   * 
+   * @param event the device's readings collected since the previous batch
+   * @throws RuntimeException if the event could not be sent; the batch is counted as failed
+   */
+  void send(Event event);
+}
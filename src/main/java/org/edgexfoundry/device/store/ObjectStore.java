@@ -18,8 +18,15 @@
 
 package org.edgexfoundry.device.store;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Map;
 
+import org.edgexfoundry.device.domain.LatestValues;
+import org.edgexfoundry.device.domain.Rollup;
+import org.edgexfoundry.device.domain.SubscriptionFilter;
 import org.edgexfoundry.domain.core.Reading;
 import org.edgexfoundry.domain.meta.Device;
 import org.edgexfoundry.domain.meta.ResourceOperation;
@@ -30,9 +37,143 @@ public interface ObjectStore {
 
   void put(Device device, ResourceOperation operation, String value);
 
+  /**
+   * Store the values of several resource operations read from a device at once. The operations
+   * are resolved first and then written together, so readers see the device's values change as a
+   * group and the device's lock is taken once.
+   * 
+   * @param device the device the values were read from
+   * @param values the value read for each operation; empty values are skipped as in put
+   * @return the readings of all values stored, in the map's iteration order, leaving out values
+   *         suppressed by their descriptor's deadband
+   */
+  List<Reading> putAll(Device device, Map<ResourceOperation, String> values);
+
   String get(String deviceId, String object);
 
+  /**
+   * History of a device object, newest value first.
+   * 
+   * @param deviceId id of the device
+   * @param object name of the object (or value descriptor) within the device
+   * @param count maximum number of values to return, bounded by data.cache.size
+   * @return a read only view of at most count values, empty if nothing has been stored
+   */
+  List<String> get(String deviceId, String object, int count);
+
   JsonObject get(Device device, ResourceOperation operation);
 
+  /**
+   * Write the latest value of each of the operation's objects as a JSON object, the same text as
+   * the JsonObject returned by get(device, operation), without building the object first.
+   * 
+   * @param device the device
+   * @param operation the resource operation
+   * @param out where the JSON is appended
+   * @throws IOException if appending fails
+   */
+  void get(Device device, ResourceOperation operation, Appendable out) throws IOException;
+
+  /**
+   * Write the latest value of each of the operation's objects as a UTF-8 encoded JSON object. The
+   * object is buffered and the stream flushed once it is written.
+   * 
+   * @see #get(Device, ResourceOperation, Appendable)
+   * @throws IOException if writing fails
+   */
+  void get(Device device, ResourceOperation operation, OutputStream out) throws IOException;
+
+  /**
+   * Put the latest value of each of the operation's objects as a UTF-8 encoded JSON object into
+   * the buffer, starting at its position.
+   * 
+   * @see #get(Device, ResourceOperation, Appendable)
+   * @throws java.nio.BufferOverflowException if the JSON does not fit in the buffer's remaining
+   *         space; the buffer then holds part of the JSON
+   */
+  void get(Device device, ResourceOperation operation, ByteBuffer out);
+
   List<Reading> getResponses(Device device, ResourceOperation operation);
+
+  /**
+   * Latest value of an object on every device using a profile. Devices are found through the
+   * profile store's index and read in parallel once there are more than
+   * data.query.parallelThreshold of them. Bulk reads do not count as use of the devices for
+   * eviction.
+   * 
+   * @param profileName name of the device profile
+   * @param object name of the object (or value descriptor)
+   * @return a single column table with a row per device
+   */
+  LatestValues getLatest(String profileName, String object);
+
+  /**
+   * Latest values of each of an operation's objects on every device using a profile.
+   * 
+   * @see #getLatest(String, String)
+   * @return a table with a column per object of the operation, as resolved for the first device,
+   *         and a row per device
+   */
+  LatestValues getLatest(String profileName, ResourceOperation operation);
+
+  /**
+   * Readings of the values of a device object captured within a time range. The range is bounded
+   * by the object's history (data.cache.size values) and, for numeric objects of typed caches, by
+   * its archive of compressed blocks (data.cache.archive.blocks blocks of data.cache.size values),
+   * which are decoded as needed.
+   * 
+   * @param device the device
+   * @param object name of the object (or value descriptor) within the device
+   * @param start start of the range in milliseconds since the epoch, inclusive
+   * @param end end of the range in milliseconds since the epoch, inclusive
+   * @return readings with their capture time as origin, oldest first
+   */
+  List<Reading> getReadings(Device device, String object, long start, long end);
+
+  /**
+   * Readings of the values of each object of a resource operation captured within a time range,
+   * grouped by object in the operation's order and oldest first within each object.
+   */
+  List<Reading> getReadings(Device device, ResourceOperation operation, long start, long end);
+
+  /**
+   * Aggregate of a numeric object's values over the most recent duration, combined from the
+   * object's rollup windows (data.rollup.width milliseconds each, data.rollup.windows kept). The
+   * aggregate covers whole windows, so it may reach back up to one window further than asked.
+   * 
+   * @param device the device
+   * @param object name of the object (or value descriptor) within the device
+   * @param duration length of the sliding window in milliseconds
+   * @return the aggregate, null if rollups are not kept for the object or it had no values
+   */
+  Rollup getRollup(Device device, String object, long duration);
+
+  /**
+   * The most recent tumbling rollup windows of a numeric object, newest first. The newest window
+   * is the one currently being filled.
+   * 
+   * @param device the device
+   * @param object name of the object (or value descriptor) within the device
+   * @param count largest number of windows returned
+   */
+  List<Rollup> getRollups(Device device, String object, int count);
+
+  /**
+   * Drop everything held for a device: its object histories, operation responses and persistent
+   * history.
+   * 
+   * @param deviceId id of the removed device
+   */
+  void remove(String deviceId);
+
+  /**
+   * Register a listener for the readings of every successful put matching the filter. Readings are
+   * delivered asynchronously through a bounded queue (data.subscription.queue puts); when the
+   * listener falls behind and the queue is full, puts are dropped for that listener only.
+   * 
+   * @param listener the listener
+   * @param filter the puts to deliver, null for every put
+   * @return the subscription, used to cancel it
+   */
+  Subscription subscribe(ObjectStoreListener listener, SubscriptionFilter filter);
 }
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store;
+
+import java.util.List;
+import java.util.Map;
+
+import org.edgexfoundry.device.domain.DeviceUsage;
+import org.edgexfoundry.device.domain.LatencySummary;
+
+/**
+ * Runtime metrics of the object store, recorded on its hot paths while data.metrics.enabled is set
+ * (the default). Recording takes no locks and allocates nothing; reading the metrics summarizes
+ * the histograms and walks the cache, so it is meant for occasional polling such as an actuator
+ * endpoint.
+ */
+public interface ObjectStoreMetrics {
+
+  /**
+   * @return latency of put and putAll, including resolving the operation and building readings
+   */
+  LatencySummary getPutLatency();
+
+  /**
+   * @return latency of the get overloads and getResponses
+   */
+  LatencySummary getGetLatency();
+
+  /**
+   * @return time writers waited for a device's lock
+   */
+  LatencySummary getLockWait();
+
+  /**
+   * @return getResponses calls answered from the cache
+   */
+  long getResponseHits();
+
+  /**
+   * @return getResponses calls for operations with no cached response
+   */
+  long getResponseMisses();
+
+  /**
+   * @return estimated heap bytes held by the cache
+   */
+  long getCacheBytes();
+
+  /**
+   * @return what the cache holds for each device
+   */
+  List<DeviceUsage> getDeviceUsage();
+
+  /**
+   * Every store wide metric as a flat map, named objectstore.put.*, objectstore.get.*,
+   * objectstore.lock.wait.*, objectstore.responses.* and objectstore.cache.*, durations in
+   * nanoseconds. Suited to an actuator's public metrics.
+   */
+  Map<String, Number> getMetrics();
+}
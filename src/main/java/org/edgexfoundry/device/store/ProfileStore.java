@@ -21,6 +21,8 @@ package org.edgexfoundry.device.store;
 import java.util.List;
 import java.util.Map;
 
+import org.edgexfoundry.device.domain.CommandIndex;
+import org.edgexfoundry.device.domain.OperationPlan;
 import org.edgexfoundry.device.domain.ServiceObject;
 import org.edgexfoundry.domain.common.ValueDescriptor;
 import org.edgexfoundry.domain.meta.Device;
@@ -28,14 +30,83 @@ import org.edgexfoundry.domain.meta.ResourceOperation;
 
 public interface ProfileStore {
 
+  /**
+   * Operations of each device's resources, keyed by device name, then lower case resource name,
+   * then get or set. Devices added with the same version of a profile share the same read only
+   * tables unless they were given overrides.
+   */
   Map<String, Map<String, Map<String, List<ResourceOperation>>>> getCommands();
 
+  /**
+   * The commands of every device compiled into an immutable index that finds a device's get or
+   * set operations for a command in one lookup, matching the command regardless of case without
+   * allocating. Prefer it to walking getCommands. A new index is compiled on the first call after
+   * devices or their commands change; the index returned stays as it was.
+   */
+  CommandIndex getCommandIndex();
+
+  /**
+   * Objects of each device keyed by device name, then object name; shared between devices of the
+   * same profile version as in getCommands.
+   */
   Map<String, Map<String, ServiceObject>> getObjects();
 
+  /**
+   * Give a device its own version of one of its profile's objects. The device's object table is
+   * copied first, so the other devices of the profile keep the shared object, and its operation
+   * plans are discarded. The override lasts until the device is next added or updated.
+   * 
+   * @param device the device, already added
+   * @param object the object, replacing the profile object of the same name
+   */
+  void overrideObject(Device device, ServiceObject object);
+
+  /**
+   * Give a device its own operations for one of its resources, copying its command table as in
+   * overrideObject.
+   * 
+   * @param device the device, already added
+   * @param resourceName name of the resource, matched regardless of case
+   * @param operations the resource's operations keyed by get or set
+   */
+  void overrideCommand(Device device, String resourceName,
+      Map<String, List<ResourceOperation>> operations);
+
   List<ValueDescriptor> getValueDescriptors();
 
   boolean descriptorExists(String name);
 
+  /**
+   * @return the value descriptor with the name, null if no device uses it
+   */
+  ValueDescriptor getValueDescriptor(String name);
+
+  /**
+   * Resolve the objects a resource operation reads or writes on a device. Plans are cached per
+   * device and discarded when the device is added, updated or removed.
+   * 
+   * @return the operation's plan, empty if the device or operation is unknown
+   */
+  OperationPlan getOperationPlan(Device device, ResourceOperation operation);
+
+  /**
+   * Devices added with the named profile, read from an index kept as devices are added and
+   * removed rather than by scanning every device.
+   * 
+   * @return the devices, empty if no device uses the profile
+   */
+  List<Device> getDevices(String profileName);
+
+  /**
+   * Make sure metadata has the value descriptors the devices' profiles need, creating the missing
+   * ones in a single concurrent pass. Used before adding a batch of devices so that the devices
+   * are then added without a round trip to metadata per descriptor.
+   * 
+   * @param devices the devices about to be added; their profiles are completed from metadata if
+   *        need be, as addDevice would
+   */
+  void synchronizeDescriptors(List<Device> devices);
+
   void addDevice(Device device);
 
   void updateDevice(Device device);
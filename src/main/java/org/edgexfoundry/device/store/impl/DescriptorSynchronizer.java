@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.edgexfoundry.controller.ValueDescriptorClient;
+import org.edgexfoundry.domain.common.ValueDescriptor;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local catalogue of the value descriptors in metadata. The catalogue is downloaded once, on first
+ * use, and downloaded again only after data.descriptors.refresh milliseconds (never if 0). A
+ * download that fails, or that returns nothing, is tried again on the first use after
+ * data.descriptors.retry milliseconds, a delay that doubles with each failure in a row up to five
+ * minutes, so that an outage of metadata is not met with a download on every lookup. In between
+ * it is kept fresh one descriptor at a time: descriptors created through the synchronizer
+ * are added as they are created, and a name missing from the catalogue is looked up in metadata
+ * before a descriptor is created for it, which picks up descriptors other services added since
+ * the download.
+ * 
+ * Missing descriptors are created together, on a pool of up to data.descriptors.threads threads
+ * started on first use, so that a batch of devices costs one pass over metadata rather than a
+ * round trip per descriptor. Idle threads of the pool exit after a minute.
+ * 
+ * @author Jim White
+ *
+ */
+@Component
+public class DescriptorSynchronizer {
+
+  private static final EdgeXLogger logger =
+      EdgeXLoggerFactory.getEdgeXLogger(DescriptorSynchronizer.class);
+
+  private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+  @Autowired
+  private ValueDescriptorClient valueDescriptorClient;
+
+  // milliseconds after which the catalogue is downloaded again, 0 to keep the first download
+  @Value("${data.descriptors.refresh:600000}")
+  private long refreshInterval;
+
+  // milliseconds before a failed download is tried again, doubled with each failure in a row
+  @Value("${data.descriptors.retry:5000}")
+  private long retryDelay;
+
+  // threads creating missing descriptors in metadata
+  @Value("${data.descriptors.threads:8}")
+  private int threads;
+
+  // descriptors known to be in metadata, keyed by name
+  private final Map<String, ValueDescriptor> catalogue = new ConcurrentHashMap<>();
+
+  // time of the last successful download, 0 before the first
+  private volatile long loaded;
+
+  // delay after the last failed download, 0 once a download succeeds
+  private long backoff;
+
+  // time before which a failed download is not tried again
+  private volatile long retryAt;
+
+  // creates missing descriptors, null until first needed
+  private ThreadPoolExecutor pool;
+
+  /**
+   * @return the descriptor with the name from the catalogue, null if it is not in it; metadata is
+   *         only contacted if the catalogue is due to be downloaded
+   */
+  public ValueDescriptor get(String name) {
+    if (name == null) {
+      return null;
+    }
+    load();
+    return catalogue.get(name);
+  }
+
+  /**
+   * Make sure each descriptor exists in metadata, finding the ones missing from the catalogue by
+   * name and creating those metadata does not have either, all in one concurrent pass.
+   * 
+   * @param descriptors descriptors to synchronize, those with a name already catalogued are
+   *        resolved to the catalogued descriptor
+   * @return the synchronized descriptors keyed by name; a descriptor that could not be created is
+   *         returned as given, without an id, and left out of the catalogue so it is tried again
+   */
+  public Map<String, ValueDescriptor> synchronize(Collection<ValueDescriptor> descriptors) {
+    load();
+    Map<String, ValueDescriptor> resolved = new HashMap<>();
+    List<ValueDescriptor> missing = new ArrayList<>();
+    for (ValueDescriptor descriptor : descriptors) {
+      ValueDescriptor known = catalogue.get(descriptor.getName());
+      if (known != null) {
+        resolved.put(known.getName(), known);
+      } else if (resolved.putIfAbsent(descriptor.getName(), descriptor) == null) {
+        missing.add(descriptor);
+      }
+    }
+
+    if (missing.size() == 1) {
+      ValueDescriptor descriptor = resolve(missing.get(0));
+      resolved.put(descriptor.getName(), descriptor);
+    } else if (!missing.isEmpty()) {
+      for (ValueDescriptor descriptor : resolveAll(missing)) {
+        resolved.put(descriptor.getName(), descriptor);
+      }
+    }
+    return resolved;
+  }
+
+  private List<ValueDescriptor> resolveAll(List<ValueDescriptor> missing) {
+    List<Callable<ValueDescriptor>> tasks = new ArrayList<>();
+    for (ValueDescriptor descriptor : missing) {
+      tasks.add(() -> resolve(descriptor));
+    }
+
+    List<ValueDescriptor> resolved = new ArrayList<>();
+    try {
+      List<Future<ValueDescriptor>> results = getPool().invokeAll(tasks);
+      for (int i = 0; i < results.size(); i++) {
+        try {
+          resolved.add(results.get(i).get());
+        } catch (ExecutionException e) {
+          resolved.add(missing.get(i));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.error("Interrupted while creating value descriptors");
+      resolved = missing;
+    } catch (RejectedExecutionException e) {
+      logger.error("Value descriptors not created, the synchronizer is shut down");
+      resolved = missing;
+    }
+    return resolved;
+  }
+
+  private synchronized ExecutorService getPool() {
+    if (pool == null) {
+      int size = Math.max(threads, 1);
+      pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "descriptor-synchronizer");
+            thread.setDaemon(true);
+            return thread;
+          });
+      pool.allowCoreThreadTimeOut(true);
+    }
+    return pool;
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  private ValueDescriptor resolve(ValueDescriptor descriptor) {
+    String name = descriptor.getName();
+    try {
+      ValueDescriptor existing = valueDescriptorClient.valueDescriptorByName(name);
+      if (existing != null) {
+        catalogue.put(name, existing);
+        return existing;
+      }
+    } catch (Exception e) {
+      logger.debug("Value descriptor " + name + " not found in metadata: " + e.getMessage());
+    }
+
+    try {
+      descriptor.setId(valueDescriptorClient.add(descriptor));
+      catalogue.put(name, descriptor);
+    } catch (Exception e) {
+      logger.error("Adding Value descriptor: " + name + " failed with error " + e.getMessage());
+    }
+    return descriptor;
+  }
+
+  /**
+   * Download the catalogue if it never was or is due to be again.
+   */
+  private void load() {
+    long now = System.currentTimeMillis();
+    if (!due(now)) {
+      return;
+    }
+
+    synchronized (catalogue) {
+      if (!due(now)) {
+        return;
+      }
+      try {
+        List<ValueDescriptor> retrieved = valueDescriptorClient.valueDescriptors();
+        if (retrieved != null) {
+          Map<String, ValueDescriptor> downloaded = new HashMap<>();
+          for (ValueDescriptor descriptor : retrieved) {
+            if (descriptor.getName() != null) {
+              downloaded.putIfAbsent(descriptor.getName(), descriptor);
+            }
+          }
+          catalogue.putAll(downloaded);
+          catalogue.keySet().retainAll(downloaded.keySet());
+          loaded = now;
+          backoff = 0;
+          return;
+        }
+        logger.error("Metadata returned no value descriptors");
+      } catch (Exception e) {
+        logger.error("Could not download the value descriptors from metadata: " + e.getMessage());
+      }
+
+      // names missing until the download is tried again are looked up one at a time as they are
+      // synchronized
+      backoff = backoff == 0 ? Math.max(retryDelay, 0)
+          : Math.min(backoff * 2, Math.max(MAX_RETRY_DELAY, retryDelay));
+      retryAt = now + backoff;
+    }
+  }
+
+  private boolean due(long now) {
+    if (now < retryAt) {
+      return false;
+    }
+    return loaded == 0 || (refreshInterval > 0 && now - loaded >= refreshInterval);
+  }
+}
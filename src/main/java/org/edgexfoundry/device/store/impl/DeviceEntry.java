@@ -0,0 +1,552 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.edgexfoundry.device.domain.Deadband;
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.edgexfoundry.device.store.impl.HistoryBuffer.AddResult;
+import org.edgexfoundry.device.store.impl.LatestValueLog.LoggedValue;
+import org.edgexfoundry.device.store.impl.MappedHistoryStore.RecoveredHistory;
+import org.edgexfoundry.device.store.impl.MappedHistoryStore.Slot;
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+
+/**
+ * Object and response cache for a single device. Writers serialize on the entry itself so that
+ * devices never contend with each other. Readers never lock: object histories are ring buffers
+ * safe for concurrent reads, and the latest values and responses are read from an immutable
+ * snapshot that each put replaces as a whole. Objects and operations are keyed by the symbols of
+ * their names in the store's {@link SymbolTable}, taken from the bound operation plan.
+ *
+ * When archiving is enabled, each numeric history hands its values to a {@link HistoryArchive}
+ * every time its ring completes a lap, and the block is compressed on the store's sealer thread
+ * rather than by the writer.
+ *
+ * The entry keeps an estimate of the heap it holds and adds every change to the store wide usage,
+ * so the store can evict cold devices once it is over budget. A released (evicted or removed) entry
+ * refuses further writes so that a writer racing the eviction retries against a fresh entry.
+ *
+ * @author Jim White
+ *
+ */
+class DeviceEntry {
+
+  private static final EdgeXLogger logger = EdgeXLoggerFactory.getEdgeXLogger(DeviceEntry.class);
+
+  // object histories keyed by object name symbol
+  private final SymbolMap<HistoryBuffer> objects = new SymbolMap<>();
+
+  // latest values and responses, replaced as a whole by each put
+  private volatile DeviceSnapshot snapshot = DeviceSnapshot.EMPTY;
+
+  // persistent slot of each object history, empty when the history is not persisted
+  private final SymbolMap<Optional<Slot>> slots = new SymbolMap<>();
+
+  // rollup windows of each numeric object keyed by object name symbol
+  private final SymbolMap<RollupBuffer> rollups = new SymbolMap<>();
+
+  // archived blocks of each numeric object keyed by object name symbol
+  private final SymbolMap<HistoryArchive> archives = new SymbolMap<>();
+
+  private final String deviceId;
+
+  private final int cacheSize;
+
+  private final boolean typed;
+
+  private final MappedHistoryStore persistence;
+
+  private final LatestValueLog valueLog;
+
+  private final Map<String, Deadband> deadbands;
+
+  private final long rollupWidth;
+
+  private final int rollupWindows;
+
+  private final int archiveBlocks;
+
+  private final Executor sealer;
+
+  private final StoreMetrics metrics;
+
+  private final AtomicLong usage;
+
+  // estimated heap bytes held by the entry, only changed by the writer
+  private volatile long footprint;
+
+  // set by every read and write after the first, cleared by the eviction policy when it ages
+  // the entry
+  private volatile boolean referenced;
+
+  private boolean released;
+
+  // slot of the object store's entry array caching this entry, -1 if not cached there
+  private volatile int slot = -1;
+
+  /**
+   * @param deviceId id of the device
+   * @param settings the store's configuration
+   * @param usage estimated heap bytes held by all entries, updated with this entry's changes
+   */
+  DeviceEntry(String deviceId, EntrySettings settings, AtomicLong usage) {
+    this.deviceId = deviceId;
+    this.cacheSize = settings.getCacheSize();
+    this.typed = settings.isTyped();
+    this.persistence = settings.getPersistence();
+    this.valueLog = settings.getValueLog();
+    this.deadbands = settings.getDeadbands();
+    this.rollupWidth = settings.hasRollups() ? settings.getRollupWidth() : 0;
+    this.rollupWindows = settings.getRollupWindows();
+    this.archiveBlocks = settings.getArchiveBlocks();
+    this.sealer = settings.getSealer();
+    this.metrics = settings.getMetrics();
+    this.usage = usage;
+  }
+
+  /**
+   * Record the value for each of the plan's objects and the readings produced for the operation.
+   *
+   * @param plan the operation's resolved plan
+   * @param value the value read from the device
+   * @param timestamp capture time of the value
+   * @param readings readings built for the operation, one per object of the plan
+   * @return the readings of the objects whose value was stored, leaving out values suppressed by
+   *         their object's deadband, or null if the entry has been released
+   */
+  List<Reading> put(OperationPlan plan, String value, long timestamp, List<Reading> readings) {
+    long requested = metrics.start();
+    synchronized (this) {
+      metrics.recordLockWait(requested);
+      if (released) {
+        return null;
+      }
+      DeviceSnapshot.Builder next = snapshot.edit();
+      List<Reading> stored = store(plan, value, timestamp, readings, next);
+      snapshot = next.build();
+      return stored;
+    }
+  }
+
+  /**
+   * Record the values of several operations read together, under a single acquisition of the
+   * entry's lock. The lists are parallel, one element per operation.
+   *
+   * @return the readings of the values stored, leaving out values suppressed by their deadband, or
+   *         null if the entry has been released
+   */
+  List<Reading> putAll(List<OperationPlan> plans, List<String> values, long timestamp,
+      List<List<Reading>> readings) {
+    long requested = metrics.start();
+    synchronized (this) {
+      metrics.recordLockWait(requested);
+      if (released) {
+        return null;
+      }
+      DeviceSnapshot.Builder next = snapshot.edit();
+      List<Reading> stored = new ArrayList<>();
+      for (int i = 0; i < plans.size(); i++) {
+        stored.addAll(store(plans.get(i), values.get(i), timestamp, readings.get(i), next));
+      }
+      // readers see all of the operations' values change at once
+      snapshot = next.build();
+      return stored;
+    }
+  }
+
+  /**
+   * @param plan the operation's plan, bound to the store's symbol table
+   * @param next the snapshot published once the put is complete
+   */
+  private List<Reading> store(OperationPlan plan, String value, long timestamp,
+      List<Reading> readings, DeviceSnapshot.Builder next) {
+    List<String> objectNames = plan.getObjectNames();
+    List<IoTType> valueTypes = plan.getValueTypes();
+    List<Reading> stored = readings;
+    List<Reading> response = readings;
+    long change = 0;
+
+    for (int i = 0; i < objectNames.size(); i++) {
+      String objectName = objectNames.get(i);
+      int objectSymbol = plan.getObjectSymbol(i);
+      Deadband deadband = deadbands.get(objectName);
+      HistoryBuffer history = objects.get(objectSymbol);
+
+      if (history == null) {
+        history = HistoryBuffer.create(typed ? valueTypes.get(i) : null, cacheSize);
+        objects.put(objectSymbol, history);
+      } else {
+        change -= history.footprint();
+      }
+
+      AddResult result = history.add(value, timestamp, deadband);
+
+      if (result == AddResult.REJECTED) {
+        // the value does not match the descriptor's type, fall back to holding strings
+        history = history.toStringHistory();
+        result = history.add(value, timestamp, deadband);
+        objects.put(objectSymbol, history);
+        change -= dropArchive(objectSymbol);
+      }
+
+      change += history.footprint();
+      if (result == AddResult.ADDED) {
+        change += archive(objectSymbol, history);
+      }
+      change += rollup(objectSymbol, valueTypes.get(i), history, value, timestamp);
+
+      if (result == AddResult.SUPPRESSED) {
+        if (stored == readings) {
+          stored = new ArrayList<>(readings.subList(0, i));
+          response = new ArrayList<>(readings);
+        }
+        // the response holds the value kept in the history, so it agrees with get
+        Reading reading = readings.get(i);
+        response.set(i, ObjectStoreImpl.buildReading(reading.getName(), history.latest(),
+            reading.getDevice(), history.latestTimestamp()));
+        continue;
+      }
+
+      if (stored != readings) {
+        stored.add(readings.get(i));
+      }
+
+      next.value(objectSymbol, history.latest());
+
+      persist(objectSymbol, objectName, valueTypes.get(i), value, timestamp);
+    }
+
+    List<Reading> previous =
+        next.response(plan.getOperationSymbol(), Collections.unmodifiableList(response));
+    change += estimate(response) - estimate(previous);
+    account(change);
+    return stored;
+  }
+
+  /**
+   * Reload a history recovered from the persistent store.
+   * 
+   * @param objectSymbol symbol of the history's object name
+   */
+  synchronized void restore(int objectSymbol, RecoveredHistory recovered) {
+    if (released) {
+      return;
+    }
+
+    HistoryBuffer history = HistoryBuffer.create(typed ? recovered.getType() : null, cacheSize);
+
+    List<String> values = recovered.getValues();
+    long[] timestamps = recovered.getTimestamps();
+
+    for (int i = 0; i < values.size(); i++) {
+      if (!history.add(values.get(i), timestamps[i])) {
+        history = history.toStringHistory();
+        history.add(values.get(i), timestamps[i]);
+      }
+    }
+
+    HistoryBuffer previous = objects.get(objectSymbol);
+    objects.put(objectSymbol, history);
+    if (history.latest() != null) {
+      snapshot = snapshot.edit().value(objectSymbol, history.latest()).build();
+    }
+    // a history that could not be given a slot when migrated is kept in memory only
+    slots.put(objectSymbol, Optional.ofNullable(recovered.getSlot()));
+    account(history.footprint() - (previous == null ? 0 : previous.footprint()));
+  }
+
+  /**
+   * Reload a latest value recovered from the log. Objects whose history was already recovered from
+   * the persistent store are left alone, the history holds the value.
+   * 
+   * @param objectSymbol symbol of the value's object name
+   */
+  synchronized void restore(int objectSymbol, LoggedValue logged) {
+    if (released || objects.get(objectSymbol) != null) {
+      return;
+    }
+
+    HistoryBuffer history = HistoryBuffer.create(typed ? logged.getType() : null, cacheSize);
+    if (!history.add(logged.getValue(), logged.getTimestamp())) {
+      history = history.toStringHistory();
+      history.add(logged.getValue(), logged.getTimestamp());
+    }
+
+    objects.put(objectSymbol, history);
+    snapshot = snapshot.edit().value(objectSymbol, history.latest()).build();
+    account(history.footprint());
+  }
+
+  /**
+   * Drop the entry's histories and responses from memory, leaving their persistent slots to be
+   * reloaded when the device is used again. Later writes to the entry are refused.
+   */
+  synchronized void evict() {
+    if (released) {
+      return;
+    }
+
+    if (persistence != null) {
+      slots.forEach(slot -> slot.ifPresent(kept -> persistence.detach(deviceId, kept)));
+    }
+
+    drop();
+  }
+
+  /**
+   * Drop the entry's histories and responses and give back their persistent slots, for a device
+   * that has been removed. Later writes to the entry are refused.
+   */
+  synchronized void release() {
+    if (released) {
+      return;
+    }
+
+    if (persistence != null) {
+      slots.forEach(slot -> slot.ifPresent(persistence::release));
+    }
+
+    drop();
+  }
+
+  private void drop() {
+    released = true;
+    slots.clear();
+    objects.clear();
+    rollups.clear();
+    archives.clear();
+    snapshot = DeviceSnapshot.EMPTY;
+    account(-footprint);
+  }
+
+  String getDeviceId() {
+    return deviceId;
+  }
+
+  int getSlot() {
+    return slot;
+  }
+
+  void setSlot(int slot) {
+    this.slot = slot;
+  }
+
+  int getObjectCount() {
+    return objects.size();
+  }
+
+  long footprint() {
+    return footprint;
+  }
+
+  /**
+   * Record a read or write of the entry for the eviction policy.
+   */
+  void touch() {
+    if (!referenced) {
+      referenced = true;
+    }
+  }
+
+  /**
+   * @return true if the entry was touched since the previous call
+   */
+  boolean clearReferenced() {
+    boolean wasReferenced = referenced;
+    if (wasReferenced) {
+      referenced = false;
+    }
+    return wasReferenced;
+  }
+
+  private void account(long change) {
+    if (change != 0) {
+      footprint += change;
+      usage.addAndGet(change);
+    }
+  }
+
+  private static long estimate(List<Reading> readings) {
+    if (readings == null) {
+      return 0;
+    }
+
+    long bytes = 16 + 4L * readings.size();
+    for (Reading reading : readings) {
+      bytes += 96 + 2L * (length(reading.getName()) + length(reading.getValue()));
+    }
+    return bytes;
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+
+  /**
+   * Add the value to the object's rollup windows if rollups are kept and the object is numeric.
+   * Every value is rolled up, including values suppressed by a deadband.
+   * 
+   * @return the bytes allocated for a new rollup
+   */
+  private long rollup(int objectSymbol, IoTType type, HistoryBuffer history, String value,
+      long timestamp) {
+    if (rollupWidth <= 0 || (type != IoTType.I && type != IoTType.F)) {
+      return 0;
+    }
+
+    double number = history.parsedValue();
+    if (Double.isNaN(number)) {
+      // untyped histories hold strings, parse the value for the rollup alone
+      try {
+        number = Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+
+    long allocated = 0;
+    RollupBuffer rollup = rollups.get(objectSymbol);
+    if (rollup == null) {
+      rollup = new RollupBuffer(rollupWidth, rollupWindows);
+      rollups.put(objectSymbol, rollup);
+      allocated = rollup.footprint();
+    }
+
+    rollup.add(number, timestamp);
+    return allocated;
+  }
+
+  /**
+   * Archive the values of a numeric history whose ring has just completed a lap, before the next
+   * add starts overwriting them, and hand the block to the sealer.
+   * 
+   * @return the change in bytes held by the object's archive
+   */
+  private long archive(int objectSymbol, HistoryBuffer history) {
+    if (archiveBlocks <= 0 || !history.isNumeric() || !history.completesLap()) {
+      return 0;
+    }
+
+    HistoryArchive archive = archives.get(objectSymbol);
+    if (archive == null) {
+      archive = new HistoryArchive(archiveBlocks);
+      archives.put(objectSymbol, archive);
+    }
+
+    HistoryBlock block = history.toBlock();
+    long change = archive.append(block);
+
+    HistoryArchive target = archive;
+    try {
+      sealer.execute(() -> seal(objectSymbol, target, block));
+    } catch (RejectedExecutionException e) {
+      // the store is shutting down, the block stays raw
+    }
+    return change;
+  }
+
+  /**
+   * Compress a raw block and swap it into the archive. Runs on the sealer thread; the encoding is
+   * done without holding the entry's lock.
+   */
+  private void seal(int objectSymbol, HistoryArchive archive, HistoryBlock block) {
+    HistoryBlock sealed = block.seal();
+    synchronized (this) {
+      // an archive dropped since the block was queued is no longer counted in the usage
+      if (!released && archives.get(objectSymbol) == archive) {
+        account(archive.replace(block, sealed));
+      }
+    }
+  }
+
+  /**
+   * @return the bytes held by the object's archive, which is discarded
+   */
+  private long dropArchive(int objectSymbol) {
+    HistoryArchive archive = archives.get(objectSymbol);
+    if (archive == null) {
+      return 0;
+    }
+    // no longer numeric, positions of the new string history do not follow the archived ones
+    archives.remove(objectSymbol);
+    return archive.footprint();
+  }
+
+  private void persist(int objectSymbol, String objectName, IoTType type, String value,
+      long timestamp) {
+    if (valueLog != null) {
+      valueLog.append(deviceId, objectName, type, value, timestamp);
+    }
+
+    if (persistence == null) {
+      return;
+    }
+
+    Optional<Slot> slot = slots.get(objectSymbol);
+
+    if (slot == null) {
+      slot = Optional.empty();
+      try {
+        slot = Optional.ofNullable(persistence.allocate(deviceId, objectName, type));
+      } catch (IOException e) {
+        logger.error("Could not allocate persistent history for " + deviceId + "/" + objectName
+            + ": " + e.getMessage());
+      }
+      slots.put(objectSymbol, slot);
+    }
+
+    if (slot.isPresent()) {
+      slot.get().append(value, timestamp);
+    }
+  }
+
+  RollupBuffer getRollup(int objectSymbol) {
+    return rollups.get(objectSymbol);
+  }
+
+  /**
+   * @return the archived blocks of a numeric object, null if none have been archived
+   */
+  HistoryArchive getArchive(int objectSymbol) {
+    return archives.get(objectSymbol);
+  }
+
+  HistoryBuffer getHistory(int objectSymbol) {
+    return objects.get(objectSymbol);
+  }
+
+  /**
+   * @return the latest values and responses, consistent as of the last completed put
+   */
+  DeviceSnapshot getSnapshot() {
+    return snapshot;
+  }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Segmented LRU choosing which devices to drop when the object store is over its memory budget.
+ * New devices enter the probationary segment. A device read or written again before it reaches the
+ * head of that segment is promoted to the protected segment, which holds at most
+ * {@value #PROTECTED_PERCENT} percent of the devices; the protected segment's least recently used
+ * devices are demoted back to probation. Victims are always taken from the probationary head, so
+ * devices seen once are evicted before devices in steady use.
+ *
+ * Reads and writes do not reorder the segments, they only set the entry's referenced flag. The
+ * segments are reordered from those flags when the policy runs, so the hot path never takes the
+ * policy's lock.
+ *
+ * @author Jim White
+ *
+ */
+class DeviceEvictionPolicy {
+
+  private static final int PROTECTED_PERCENT = 80;
+
+  // oldest first
+  private final LinkedHashSet<DeviceEntry> probation = new LinkedHashSet<>();
+
+  // least recently promoted first
+  private final LinkedHashSet<DeviceEntry> protectedSegment = new LinkedHashSet<>();
+
+  synchronized void admit(DeviceEntry entry) {
+    probation.add(entry);
+  }
+
+  synchronized void remove(DeviceEntry entry) {
+    if (!probation.remove(entry)) {
+      protectedSegment.remove(entry);
+    }
+  }
+
+  /**
+   * Choose the coldest devices holding at least the given number of bytes and drop them from the
+   * policy. The caller releases the victims.
+   */
+  synchronized List<DeviceEntry> evict(long bytes) {
+    List<DeviceEntry> victims = new ArrayList<>();
+    long freed = 0;
+    // each pass either evicts, promotes or demotes, bound it in case entries keep being touched
+    int passes = 2 * (probation.size() + protectedSegment.size()) + 1;
+
+    while (freed < bytes && passes-- > 0) {
+      if (probation.isEmpty()) {
+        if (protectedSegment.isEmpty()) {
+          break;
+        }
+        demote();
+        continue;
+      }
+
+      DeviceEntry candidate = probation.iterator().next();
+      probation.remove(candidate);
+
+      if (candidate.clearReferenced()) {
+        protectedSegment.add(candidate);
+        if (protectedSegment.size() > maxProtected()) {
+          demote();
+        }
+      } else {
+        victims.add(candidate);
+        freed += candidate.footprint();
+      }
+    }
+
+    return victims;
+  }
+
+  private int maxProtected() {
+    return (probation.size() + protectedSegment.size()) * PROTECTED_PERCENT / 100;
+  }
+
+  /**
+   * Move the protected segment's least recently used device to probation, giving devices touched
+   * since they were last aged another turn in the protected segment.
+   */
+  private void demote() {
+    DeviceEntry oldest = null;
+
+    for (int turns = protectedSegment.size(); turns >= 0; turns--) {
+      oldest = protectedSegment.iterator().next();
+      protectedSegment.remove(oldest);
+      if (!oldest.clearReferenced() || turns == 0) {
+        break;
+      }
+      protectedSegment.add(oldest);
+    }
+
+    probation.add(oldest);
+  }
+}
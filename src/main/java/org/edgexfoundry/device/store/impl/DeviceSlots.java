@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Dense int slots of the devices registered with the profile store. A device is given the lowest
+ * free slot when it is added and gives it back when it is removed, so slots stay within the number
+ * of devices and can index flat arrays. The slot is bound into the device's operation plans, which
+ * lets the object store find a device's entry on a put by indexing an array instead of hashing the
+ * device id.
+ *
+ * Lookups take no locks; assigning and releasing slots synchronizes on the table.
+ *
+ * @author Jim White
+ *
+ */
+@Component
+public class DeviceSlots {
+
+  private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+
+  // released slots, reused lowest first
+  private final BitSet free = new BitSet();
+
+  private int next;
+
+  /**
+   * @return the device's slot, assigning one if the device has none
+   */
+  public synchronized int assign(String deviceId) {
+    Integer slot = slots.get(deviceId);
+    if (slot != null) {
+      return slot;
+    }
+
+    int assigned = free.nextSetBit(0);
+    if (assigned < 0) {
+      assigned = next++;
+    } else {
+      free.clear(assigned);
+    }
+    slots.put(deviceId, assigned);
+    return assigned;
+  }
+
+  /**
+   * @return the device's slot, -1 if the device has none
+   */
+  public int lookup(String deviceId) {
+    if (deviceId == null) {
+      return -1;
+    }
+    Integer slot = slots.get(deviceId);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * Give back the device's slot for reuse by a later device.
+   */
+  public synchronized void release(String deviceId) {
+    if (deviceId == null) {
+      return;
+    }
+    Integer slot = slots.remove(deviceId);
+    if (slot != null) {
+      free.set(slot);
+    }
+  }
+
+  /**
+   * @return one more than the highest slot ever assigned
+   */
+  public synchronized int capacity() {
+    return next;
+  }
+}
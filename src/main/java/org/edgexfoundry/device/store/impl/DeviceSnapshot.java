@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.List;
+
+import org.edgexfoundry.domain.core.Reading;
+
+/**
+ * Immutable view of a device's latest object values and operation responses. The device entry's
+ * writer builds the next snapshot from the current one and publishes it with a single volatile
+ * write once a put is complete, so a reader holding a snapshot sees every object as of the same
+ * put and reads it without waiting on, or being retried by, the writer.
+ *
+ * @author Jim White
+ *
+ */
+final class DeviceSnapshot {
+
+  static final DeviceSnapshot EMPTY = new DeviceSnapshot(new SymbolMap<>(), new SymbolMap<>());
+
+  // latest value of each object keyed by object name symbol
+  private final SymbolMap<String> values;
+
+  // latest readings of each operation keyed by operation id symbol
+  private final SymbolMap<List<Reading>> responses;
+
+  private DeviceSnapshot(SymbolMap<String> values, SymbolMap<List<Reading>> responses) {
+    this.values = values;
+    this.responses = responses;
+  }
+
+  /**
+   * @return latest value of the object, null if none has been stored
+   */
+  String getValue(int objectSymbol) {
+    return values.get(objectSymbol);
+  }
+
+  /**
+   * @return latest readings of the operation, null if none have been stored
+   */
+  List<Reading> getResponses(int operationSymbol) {
+    return responses.get(operationSymbol);
+  }
+
+  /**
+   * @return number of operations with stored readings
+   */
+  int getResponseCount() {
+    return responses.size();
+  }
+
+  /**
+   * @return a builder of the next snapshot, starting from this one
+   */
+  Builder edit() {
+    return new Builder(values.copy(), responses.copy());
+  }
+
+  /**
+   * Changes made by the writer during a put. The builder's maps share this snapshot's tables until
+   * they are first changed, so the snapshot itself is never modified.
+   */
+  static final class Builder {
+
+    private final SymbolMap<String> values;
+
+    private final SymbolMap<List<Reading>> responses;
+
+    private Builder(SymbolMap<String> values, SymbolMap<List<Reading>> responses) {
+      this.values = values;
+      this.responses = responses;
+    }
+
+    Builder value(int objectSymbol, String value) {
+      values.put(objectSymbol, value);
+      return this;
+    }
+
+    /**
+     * @return the operation's previous readings, null if there were none
+     */
+    List<Reading> response(int operationSymbol, List<Reading> readings) {
+      List<Reading> previous = responses.get(operationSymbol);
+      responses.put(operationSymbol, readings);
+      return previous;
+    }
+
+    DeviceSnapshot build() {
+      return new DeviceSnapshot(values, responses);
+    }
+  }
+}
@@ -22,11 +22,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.edgexfoundry.controller.AddressableClient;
 import org.edgexfoundry.controller.DeviceClient;
 import org.edgexfoundry.device.store.DeviceStore;
+import org.edgexfoundry.device.store.ObjectStore;
 import org.edgexfoundry.device.store.ProfileStore;
 import org.edgexfoundry.domain.meta.Addressable;
 import org.edgexfoundry.domain.meta.AdminState;
@@ -55,6 +55,9 @@ public class DeviceStoreImpl implements DeviceStore {
   @Autowired
   private ProfileStore profileStore;
 
+  @Autowired
+  private ObjectStore objectStore;
+
   @Value("${service.name}")
   private String serviceName;
 
@@ -65,6 +68,7 @@ public class DeviceStoreImpl implements DeviceStore {
   public Map<String, Device> initialize(String deviceServiceId, ServiceHandler handler) {
     List<Device> metaDevices = deviceClient.devicesForService(deviceServiceId);
     deviceCache = new HashMap<>();
+    profileStore.synchronizeDescriptors(metaDevices);
     for (Device device : metaDevices) {
       deviceClient.updateOpState(device.getId(), OperatingState.disabled.name());
       add(device, handler);
@@ -177,8 +181,7 @@ public class DeviceStoreImpl implements DeviceStore {
 
   @Override
   public List<Device> getDeviceByProfileName(String profileName) {
-    return deviceCache.entrySet().stream().map(d -> d.getValue())
-        .filter(d -> profileName.equals(d.getProfile().getName())).collect(Collectors.toList());
+    return profileStore.getDevices(profileName);
   }
 
   @Override
@@ -240,6 +243,7 @@ public class DeviceStoreImpl implements DeviceStore {
       handler.disconnectDevice(device);
       deviceClient.updateOpState(device.getId(), OperatingState.disabled.name());
       profileStore.removeDevice(device);
+      objectStore.remove(device.getId());
     }
     return true;
   }
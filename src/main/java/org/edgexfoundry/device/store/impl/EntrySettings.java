@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.edgexfoundry.device.domain.Deadband;
+
+/**
+ * The object store's configuration as seen by its device entries, captured when an entry is
+ * created.
+ *
+ * @author Jim White
+ *
+ */
+final class EntrySettings {
+
+  private final int cacheSize;
+
+  private final boolean typed;
+
+  private final MappedHistoryStore persistence;
+
+  private final LatestValueLog valueLog;
+
+  private final Map<String, Deadband> deadbands;
+
+  private final long rollupWidth;
+
+  private final int rollupWindows;
+
+  private final int archiveBlocks;
+
+  private final Executor sealer;
+
+  private final StoreMetrics metrics;
+
+  /**
+   * @param cacheSize depth of each object history
+   * @param typed whether numeric and boolean values are held in primitive form
+   * @param persistence persistent copy of the histories, null if histories are not persisted
+   * @param valueLog write-behind log of the latest values, null if values are not logged
+   * @param deadbands write deadband of each filtered object keyed by object name
+   * @param rollupWidth width in milliseconds of each rollup window, 0 to keep no rollups
+   * @param rollupWindows number of rollup windows kept for each numeric object
+   * @param archiveBlocks number of compressed blocks archived for each numeric object, 0 to
+   *        archive nothing
+   * @param sealer runs the compression of archived blocks
+   * @param metrics recorders of the store's hot paths
+   */
+  EntrySettings(int cacheSize, boolean typed, MappedHistoryStore persistence,
+      LatestValueLog valueLog, Map<String, Deadband> deadbands, long rollupWidth,
+      int rollupWindows, int archiveBlocks, Executor sealer, StoreMetrics metrics) {
+    this.cacheSize = cacheSize;
+    this.typed = typed;
+    this.persistence = persistence;
+    this.valueLog = valueLog;
+    this.deadbands = deadbands;
+    this.rollupWidth = rollupWidth;
+    this.rollupWindows = rollupWindows;
+    this.archiveBlocks = archiveBlocks;
+    this.sealer = sealer;
+    this.metrics = metrics;
+  }
+
+  int getCacheSize() {
+    return cacheSize;
+  }
+
+  boolean isTyped() {
+    return typed;
+  }
+
+  MappedHistoryStore getPersistence() {
+    return persistence;
+  }
+
+  LatestValueLog getValueLog() {
+    return valueLog;
+  }
+
+  Map<String, Deadband> getDeadbands() {
+    return deadbands;
+  }
+
+  long getRollupWidth() {
+    return rollupWidth;
+  }
+
+  int getRollupWindows() {
+    return rollupWindows;
+  }
+
+  int getArchiveBlocks() {
+    return archiveBlocks;
+  }
+
+  Executor getSealer() {
+    return sealer;
+  }
+
+  StoreMetrics getMetrics() {
+    return metrics;
+  }
+
+  boolean hasRollups() {
+    return rollupWidth > 0 && rollupWindows > 0;
+  }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.edgexfoundry.domain.core.Reading;
+
+/**
+ * Long term history of a numeric device object: the blocks of values archived each time the
+ * object's history ring completes a lap, oldest first, bounded by a number of blocks. Blocks are
+ * appended raw by the writer and replaced by their sealed (compressed) copy once the background
+ * sealer has encoded them. The list of blocks is copied on every change and published with a
+ * volatile write, so readers never lock.
+ *
+ * @author Jim White
+ *
+ */
+final class HistoryArchive {
+
+  private final int maxBlocks;
+
+  private volatile List<HistoryBlock> blocks = Collections.emptyList();
+
+  /**
+   * @param maxBlocks largest number of blocks kept, the oldest are dropped first
+   */
+  HistoryArchive(int maxBlocks) {
+    this.maxBlocks = Math.max(maxBlocks, 1);
+  }
+
+  /**
+   * Append a block, dropping the oldest blocks beyond the limit. Called by the writer holding the
+   * device entry's lock.
+   * 
+   * @return the change in estimated heap bytes held by the archive
+   */
+  long append(HistoryBlock block) {
+    List<HistoryBlock> current = blocks;
+    int drop = Math.max(0, current.size() + 1 - maxBlocks);
+    List<HistoryBlock> next = new ArrayList<>(current.size() + 1 - drop);
+    long change = block.footprint();
+    for (int i = 0; i < current.size(); i++) {
+      if (i < drop) {
+        change -= current.get(i).footprint();
+      } else {
+        next.add(current.get(i));
+      }
+    }
+    next.add(block);
+    blocks = Collections.unmodifiableList(next);
+    return change;
+  }
+
+  /**
+   * Replace a raw block by its sealed copy. Called holding the device entry's lock.
+   * 
+   * @return the change in estimated heap bytes, 0 if the raw block has already been dropped
+   */
+  long replace(HistoryBlock raw, HistoryBlock sealed) {
+    List<HistoryBlock> current = blocks;
+    int index = current.indexOf(raw);
+    if (index < 0) {
+      return 0;
+    }
+    List<HistoryBlock> next = new ArrayList<>(current);
+    next.set(index, sealed);
+    blocks = Collections.unmodifiableList(next);
+    return sealed.footprint() - raw.footprint();
+  }
+
+  /**
+   * Add readings of the archived values captured between start and end (inclusive) to the list,
+   * oldest first, decoding only the blocks that overlap the range.
+   * 
+   * @param before position of the oldest value still held by the object's history ring; values
+   *        from there on are read from the ring and left out here
+   */
+  void range(long start, long end, long before, String deviceName, String objectName,
+      List<Reading> readings) {
+    for (HistoryBlock block : blocks) {
+      if (block.getFirstPosition() >= before) {
+        break;
+      }
+      if (block.getLastTimestamp() < start || block.getFirstTimestamp() > end) {
+        continue;
+      }
+      block.forEach((position, timestamp, value) -> {
+        if (position < before && timestamp >= start && timestamp <= end) {
+          readings.add(ObjectStoreImpl.buildReading(objectName, block.format(value), deviceName,
+              timestamp));
+        }
+      });
+    }
+  }
+
+  /**
+   * @return estimated heap bytes held by the blocks
+   */
+  long footprint() {
+    long bytes = 0;
+    for (HistoryBlock block : blocks) {
+      bytes += block.footprint();
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.Arrays;
+
+/**
+ * A run of consecutive numeric values of a device object, archived once they are about to leave
+ * the object's history ring. A block starts raw, holding copies of the ring's arrays, and is
+ * sealed in the background into a Gorilla style bit stream: timestamps are stored as the delta of
+ * their delta from the previous one (a single bit for evenly spaced samples) and values as the XOR
+ * with the previous value's 64 bits, storing only the meaningful bits (a single bit for a repeated
+ * value). Blocks are immutable; sealing produces a new block that replaces the raw one.
+ *
+ * @author Jim White
+ *
+ */
+final class HistoryBlock {
+
+  private final long firstPosition;
+
+  private final int count;
+
+  private final boolean integral;
+
+  private final long firstTimestamp;
+
+  private final long lastTimestamp;
+
+  // raw samples, null once sealed
+  private final long[] timestamps;
+
+  private final long[] values;
+
+  // encoded samples, null until sealed
+  private final long[] bits;
+
+  private HistoryBlock(long firstPosition, int count, boolean integral, long firstTimestamp,
+      long lastTimestamp, long[] timestamps, long[] values, long[] bits) {
+    this.firstPosition = firstPosition;
+    this.count = count;
+    this.integral = integral;
+    this.firstTimestamp = firstTimestamp;
+    this.lastTimestamp = lastTimestamp;
+    this.timestamps = timestamps;
+    this.values = values;
+    this.bits = bits;
+  }
+
+  /**
+   * @param firstPosition position in the object's history of the first sample
+   * @param integral whether the values are the bits of longs rather than of doubles
+   * @param timestamps capture times, never decreasing
+   * @param values 64 bits of each value
+   */
+  static HistoryBlock raw(long firstPosition, boolean integral, long[] timestamps,
+      long[] values) {
+    return new HistoryBlock(firstPosition, timestamps.length, integral, timestamps[0],
+        timestamps[timestamps.length - 1], timestamps, values, null);
+  }
+
+  /**
+   * @return the encoded copy of this block, this block if it is already sealed
+   */
+  HistoryBlock seal() {
+    if (isSealed()) {
+      return this;
+    }
+
+    BitWriter writer = new BitWriter(count);
+    writer.write(timestamps[0], 64);
+    writer.write(values[0], 64);
+    long previousDelta = 0;
+    int leading = -1;
+    int trailing = 0;
+
+    for (int i = 1; i < count; i++) {
+      long delta = timestamps[i] - timestamps[i - 1];
+      writeDeltaOfDelta(writer, delta - previousDelta);
+      previousDelta = delta;
+
+      long xor = values[i] ^ values[i - 1];
+      if (xor == 0) {
+        writer.write(0, 1);
+        continue;
+      }
+
+      int xorLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+      int xorTrailing = Long.numberOfTrailingZeros(xor);
+      writer.write(1, 1);
+      if (leading >= 0 && xorLeading >= leading && xorTrailing >= trailing) {
+        // the meaningful bits fit in the previous window
+        writer.write(0, 1);
+        writer.write(xor >>> trailing, 64 - leading - trailing);
+      } else {
+        leading = xorLeading;
+        trailing = xorTrailing;
+        int meaningful = 64 - leading - trailing;
+        writer.write(1, 1);
+        writer.write(leading, 5);
+        // 64 meaningful bits are written as 0
+        writer.write(meaningful & 0x3f, 6);
+        writer.write(xor >>> trailing, meaningful);
+      }
+    }
+
+    return new HistoryBlock(firstPosition, count, integral, firstTimestamp, lastTimestamp, null,
+        null, writer.toArray());
+  }
+
+  boolean isSealed() {
+    return bits != null;
+  }
+
+  long getFirstPosition() {
+    return firstPosition;
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  long getFirstTimestamp() {
+    return firstTimestamp;
+  }
+
+  long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * @return estimated heap bytes held by the block
+   */
+  long footprint() {
+    return 64 + (isSealed() ? 8L * bits.length : 16L * count + 32);
+  }
+
+  String format(long value) {
+    return integral ? Long.toString(value) : HistoryBuffer.formatDouble(Double.longBitsToDouble(value));
+  }
+
+  /**
+   * Visit the samples oldest first, decoding them if the block is sealed.
+   */
+  void forEach(SampleVisitor visitor) {
+    if (!isSealed()) {
+      for (int i = 0; i < count; i++) {
+        visitor.visit(firstPosition + i, timestamps[i], values[i]);
+      }
+      return;
+    }
+
+    BitReader reader = new BitReader(bits);
+    long timestamp = reader.read(64);
+    long value = reader.read(64);
+    visitor.visit(firstPosition, timestamp, value);
+    long delta = 0;
+    int leading = 0;
+    int trailing = 0;
+
+    for (int i = 1; i < count; i++) {
+      delta += readDeltaOfDelta(reader);
+      timestamp += delta;
+
+      if (reader.read(1) == 1) {
+        if (reader.read(1) == 1) {
+          leading = (int) reader.read(5);
+          int meaningful = (int) reader.read(6);
+          trailing = 64 - leading - (meaningful == 0 ? 64 : meaningful);
+        }
+        value ^= reader.read(64 - leading - trailing) << trailing;
+      }
+
+      visitor.visit(firstPosition + i, timestamp, value);
+    }
+  }
+
+  private static void writeDeltaOfDelta(BitWriter writer, long deltaOfDelta) {
+    if (deltaOfDelta == 0) {
+      writer.write(0, 1);
+    } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+      writer.write(0b10, 2);
+      writer.write(deltaOfDelta, 7);
+    } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+      writer.write(0b110, 3);
+      writer.write(deltaOfDelta, 9);
+    } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+      writer.write(0b1110, 4);
+      writer.write(deltaOfDelta, 12);
+    } else {
+      writer.write(0b1111, 4);
+      writer.write(deltaOfDelta, 64);
+    }
+  }
+
+  private static long readDeltaOfDelta(BitReader reader) {
+    if (reader.read(1) == 0) {
+      return 0;
+    }
+    if (reader.read(1) == 0) {
+      return signed(reader.read(7), 7);
+    }
+    if (reader.read(1) == 0) {
+      return signed(reader.read(9), 9);
+    }
+    if (reader.read(1) == 0) {
+      return signed(reader.read(12), 12);
+    }
+    return reader.read(64);
+  }
+
+  private static long signed(long value, int width) {
+    return (value << (64 - width)) >> (64 - width);
+  }
+
+  @FunctionalInterface
+  interface SampleVisitor {
+    void visit(long position, long timestamp, long value);
+  }
+
+  private static final class BitWriter {
+
+    private long[] words;
+
+    private long length;
+
+    BitWriter(int samples) {
+      // room for a typical sample of a slowly changing series, grown as needed
+      words = new long[Math.max(4, samples / 4)];
+    }
+
+    /**
+     * Append the low width bits of the value, most significant first.
+     */
+    void write(long value, int width) {
+      if (width == 0) {
+        return;
+      }
+      if (width < 64) {
+        value &= (1L << width) - 1;
+      }
+
+      int index = (int) (length >>> 6);
+      int used = (int) (length & 63);
+      if (index + 1 >= words.length) {
+        words = Arrays.copyOf(words, words.length * 2);
+      }
+
+      int free = 64 - used;
+      if (width <= free) {
+        words[index] |= value << (free - width);
+      } else {
+        words[index] |= value >>> (width - free);
+        words[index + 1] |= value << (64 - (width - free));
+      }
+      length += width;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(words, (int) ((length + 63) >>> 6));
+    }
+  }
+
+  private static final class BitReader {
+
+    private final long[] words;
+
+    private long position;
+
+    BitReader(long[] words) {
+      this.words = words;
+    }
+
+    long read(int width) {
+      if (width == 0) {
+        return 0;
+      }
+
+      int index = (int) (position >>> 6);
+      int used = (int) (position & 63);
+      int available = 64 - used;
+      long value;
+
+      if (width <= available) {
+        value = words[index] << used >>> (64 - width);
+      } else {
+        long high = words[index] << used >>> used;
+        int rest = width - available;
+        value = (high << rest) | (words[index + 1] >>> (64 - rest));
+      }
+
+      position += width;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,609 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.edgexfoundry.device.domain.Deadband;
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.domain.core.Reading;
+
+/**
+ * Fixed capacity ring of the most recent values of a device object and the time each was captured.
+ * The slots are allocated up front and each add overwrites the oldest slot, so inserts are O(1)
+ * regardless of depth. Capture times never decrease along the ring, so time ranges are found by
+ * binary search.
+ * Subclasses decide how a slot holds its value: numeric and boolean histories parse the value once
+ * on add into a primitive array and only build strings when a caller reads them. The parsed value
+ * is compared with the latest one to apply a descriptor's deadband before it is stored.
+ *
+ * A single writer (holding the owning device entry's lock) adds values. Readers take no locks: the
+ * volatile write count publishes each value. Before overwriting a slot the writer claims it, so a
+ * reader that reads a slot and then finds it claimed knows the value may be torn or newer than the
+ * one it asked for, and history views detect when a slot they expose has been overwritten since
+ * the view was taken.
+ *
+ * @author Jim White
+ *
+ */
+abstract class HistoryBuffer {
+
+  private final int capacity;
+
+  private final long[] timestamps;
+
+  // total number of values ever added; the next slot written is writes % capacity
+  private volatile long writes;
+
+  // number of values whose slot the writer has started to write, set before the slot is written
+  // and one ahead of writes while an add is in progress
+  private volatile long claimed;
+
+  HistoryBuffer(int capacity) {
+    this.capacity = Math.max(capacity, 1);
+    this.timestamps = new long[this.capacity];
+  }
+
+  /**
+   * Create a history holding values of the given type in their primitive form. Types without a
+   * primitive form (strings, JSON or unknown) are held as strings.
+   */
+  static HistoryBuffer create(IoTType type, int capacity) {
+    if (type == null) {
+      return new StringHistory(capacity);
+    }
+
+    switch (type) {
+      case I:
+        return new LongHistory(capacity);
+      case F:
+        return new DoubleHistory(capacity);
+      case B:
+        return new BooleanHistory(capacity);
+      default:
+        return new StringHistory(capacity);
+    }
+  }
+
+  /**
+   * Outcome of adding a value.
+   */
+  enum AddResult {
+    // the value was added
+    ADDED,
+    // the value was within the deadband of the latest value and was not added
+    SUPPRESSED,
+    // the value cannot be held by this history's type and was not added
+    REJECTED
+  }
+
+  /**
+   * Add a value, overwriting the oldest once the history is full. A capture time earlier than the
+   * previous value's (the clock was stepped back) is recorded as the previous value's time.
+   * 
+   * @param value the value
+   * @param timestamp capture time in milliseconds since the epoch
+   * @return false, leaving the history unchanged, if the value cannot be held by this history's
+   *         type
+   */
+  boolean add(String value, long timestamp) {
+    return add(value, timestamp, null) == AddResult.ADDED;
+  }
+
+  /**
+   * Add a value unless it is within the deadband of the latest value. The comparison is made on the
+   * parsed value, so numeric histories compare primitives while string and boolean histories only
+   * suppress exact duplicates.
+   * 
+   * @param value the value
+   * @param timestamp capture time in milliseconds since the epoch
+   * @param deadband deadband of the value's descriptor, null to add every value
+   */
+  AddResult add(String value, long timestamp, Deadband deadband) {
+    if (!parse(value)) {
+      return AddResult.REJECTED;
+    }
+    long count = writes;
+    if (count > 0) {
+      int previous = (int) ((count - 1) % capacity);
+      if (deadband != null && suppresses(previous, deadband)) {
+        return AddResult.SUPPRESSED;
+      }
+      timestamp = Math.max(timestamp, timestamps[previous]);
+    }
+    int slot = (int) (count % capacity);
+    claimed = count + 1;
+    store(slot);
+    timestamps[slot] = timestamp;
+    writes = count + 1;
+    return AddResult.ADDED;
+  }
+
+  /**
+   * Copy of this history holding its values as strings, for values that turn out not to match the
+   * declared type.
+   */
+  HistoryBuffer toStringHistory() {
+    HistoryBuffer history = new StringHistory(capacity);
+    long end = writes;
+    for (long position = end - size(); position < end; position++) {
+      int slot = (int) (position % capacity);
+      history.add(format(slot), timestamps[slot]);
+    }
+    return history;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return position of the oldest value still held, counting every value ever added
+   */
+  long firstPosition() {
+    return writes - size();
+  }
+
+  /**
+   * @return true if the last add filled the ring's last slot, so the next add starts overwriting
+   *         the values now held
+   */
+  boolean completesLap() {
+    long count = writes;
+    return count > 0 && count % capacity == 0;
+  }
+
+  /**
+   * Copy of the values now held as the 64 bits of each, oldest first, for archiving. Only numeric
+   * histories support blocks and only the writer may take them.
+   */
+  HistoryBlock toBlock() {
+    long end = writes;
+    int size = size();
+    long[] blockTimestamps = new long[size];
+    long[] blockValues = new long[size];
+    for (int i = 0; i < size; i++) {
+      int slot = (int) ((end - size + i) % capacity);
+      blockTimestamps[i] = timestamps[slot];
+      blockValues[i] = bits(slot);
+    }
+    return HistoryBlock.raw(end - size, isIntegral(), blockTimestamps, blockValues);
+  }
+
+  /**
+   * @return true if the values are numbers that can be archived in blocks
+   */
+  boolean isNumeric() {
+    return false;
+  }
+
+  /**
+   * @return true if the values are whole numbers
+   */
+  boolean isIntegral() {
+    return false;
+  }
+
+  /**
+   * @return the 64 bits of the numeric value in the slot
+   */
+  long bits(int slot) {
+    throw new UnsupportedOperationException("History does not hold numbers");
+  }
+
+  /**
+   * @return estimated heap bytes held by the history, only accurate when called by the writer
+   */
+  long footprint() {
+    return 16 + 8L * capacity + valueBytes();
+  }
+
+  int size() {
+    return (int) Math.min(writes, capacity);
+  }
+
+  /**
+   * @return the most recent value or null if nothing has been added
+   */
+  String latest() {
+    while (true) {
+      long count = writes;
+      if (count == 0) {
+        return null;
+      }
+      String value = format((int) ((count - 1) % capacity));
+      if (!overwritten(count - 1)) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * @return capture time of the most recent value, 0 if nothing has been added
+   */
+  long latestTimestamp() {
+    while (true) {
+      long count = writes;
+      if (count == 0) {
+        return 0;
+      }
+      long timestamp = timestamps[(int) ((count - 1) % capacity)];
+      if (!overwritten(count - 1)) {
+        return timestamp;
+      }
+    }
+  }
+
+  /**
+   * @return true if the slot of the value at the position has been claimed for a newer value since,
+   *         so what was read from it may not be that value; checked after reading the slot
+   */
+  private boolean overwritten(long position) {
+    return claimed - position > capacity;
+  }
+
+  /**
+   * View of up to count of the most recent values, newest first. The view does not copy; reading
+   * an element that has since been overwritten by the writer throws
+   * {@link ConcurrentModificationException}.
+   */
+  List<String> latest(int count) {
+    long end = writes;
+    int size = (int) Math.min(Math.min(count, end), capacity);
+    if (size <= 0) {
+      return Collections.emptyList();
+    }
+    return new HistoryView(end, size);
+  }
+
+  /**
+   * Readings of the values captured between start and end (inclusive), oldest first. Values that
+   * are overwritten by the writer while the range is read are left out.
+   */
+  List<Reading> range(long start, long end, String deviceName, String objectName) {
+    long last = writes;
+    long first = last - size();
+    long from = search(first, last, start);
+    long to = search(from, last, end + 1);
+    List<Reading> readings = new ArrayList<>((int) (to - from));
+
+    for (long position = from; position < to; position++) {
+      int slot = (int) (position % capacity);
+      readings.add(
+          ObjectStoreImpl.buildReading(objectName, format(slot), deviceName, timestamps[slot]));
+    }
+
+    // drop the oldest readings if their slots were claimed for newer values while being read
+    long overwritten = claimed - capacity - from;
+    if (overwritten > 0) {
+      return readings.subList((int) Math.min(overwritten, readings.size()), readings.size());
+    }
+
+    return readings;
+  }
+
+  /**
+   * First position in [from, to) captured at or after the timestamp, to if there is none.
+   */
+  private long search(long from, long to, long timestamp) {
+    long low = from;
+    long high = to;
+    while (low < high) {
+      long middle = (low + high) >>> 1;
+      if (timestamps[(int) (middle % capacity)] < timestamp) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Parse the value into the writer's pending value.
+   * 
+   * @return false if the value cannot be held by this history's type
+   */
+  protected abstract boolean parse(String value);
+
+  /**
+   * @return true if the pending value is within the deadband of the value in the slot
+   */
+  protected abstract boolean suppresses(int slot, Deadband deadband);
+
+  /**
+   * Move the pending value into the slot.
+   */
+  protected abstract void store(int slot);
+
+  /**
+   * @return estimated heap bytes held by the values
+   */
+  protected abstract long valueBytes();
+
+  /**
+   * @return the value most recently given to add as a number, NaN if this history does not hold
+   *         numbers
+   */
+  double parsedValue() {
+    return Double.NaN;
+  }
+
+  protected abstract String format(int slot);
+
+  /**
+   * The shortest decimal that reads back as the value, never in scientific notation: 12345678.9
+   * rather than 1.23456789E7. Whole numbers keep a ".0", negative zero keeps its sign, and NaN and
+   * the infinities keep Java's names.
+   */
+  static String formatDouble(double value) {
+    String text = Double.toString(value);
+    if (text.indexOf('E') < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+      return text;
+    }
+    String plain = new BigDecimal(text).stripTrailingZeros().toPlainString();
+    return plain.indexOf('.') < 0 ? plain + ".0" : plain;
+  }
+
+  private class HistoryView extends AbstractList<String> implements RandomAccess {
+
+    private final long end;
+
+    private final int size;
+
+    HistoryView(long end, int size) {
+      this.end = end;
+      this.size = size;
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      long position = end - 1 - index;
+      String value = format((int) (position % capacity));
+      if (overwritten(position)) {
+        throw new ConcurrentModificationException("History value was overwritten");
+      }
+      return value;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  static class StringHistory extends HistoryBuffer {
+
+    private final String[] values;
+
+    private String pending;
+
+    // estimated bytes of the strings held, kept up to date by the writer
+    private long stringBytes;
+
+    StringHistory(int capacity) {
+      super(capacity);
+      values = new String[capacity()];
+    }
+
+    private static long estimate(String value) {
+      return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    @Override
+    protected boolean parse(String value) {
+      pending = value;
+      return true;
+    }
+
+    @Override
+    protected boolean suppresses(int slot, Deadband deadband) {
+      return pending.equals(values[slot]);
+    }
+
+    @Override
+    protected void store(int slot) {
+      stringBytes += estimate(pending) - estimate(values[slot]);
+      values[slot] = pending;
+    }
+
+    @Override
+    protected long valueBytes() {
+      return 16 + 4L * capacity() + stringBytes;
+    }
+
+    @Override
+    protected String format(int slot) {
+      return values[slot];
+    }
+  }
+
+  static class LongHistory extends HistoryBuffer {
+
+    private final long[] values;
+
+    private long pending;
+
+    LongHistory(int capacity) {
+      super(capacity);
+      values = new long[capacity()];
+    }
+
+    @Override
+    protected boolean parse(String value) {
+      try {
+        pending = Long.parseLong(value.trim());
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+
+    @Override
+    protected boolean suppresses(int slot, Deadband deadband) {
+      return pending == values[slot] || deadband.suppresses(values[slot], pending);
+    }
+
+    @Override
+    double parsedValue() {
+      return pending;
+    }
+
+    @Override
+    protected void store(int slot) {
+      values[slot] = pending;
+    }
+
+    @Override
+    protected long valueBytes() {
+      return 16 + 8L * capacity();
+    }
+
+    @Override
+    boolean isNumeric() {
+      return true;
+    }
+
+    @Override
+    boolean isIntegral() {
+      return true;
+    }
+
+    @Override
+    long bits(int slot) {
+      return values[slot];
+    }
+
+    @Override
+    protected String format(int slot) {
+      return Long.toString(values[slot]);
+    }
+  }
+
+  static class DoubleHistory extends HistoryBuffer {
+
+    private final double[] values;
+
+    private double pending;
+
+    DoubleHistory(int capacity) {
+      super(capacity);
+      values = new double[capacity()];
+    }
+
+    @Override
+    protected boolean parse(String value) {
+      try {
+        pending = Double.parseDouble(value);
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+
+    @Override
+    protected boolean suppresses(int slot, Deadband deadband) {
+      return pending == values[slot] || deadband.suppresses(values[slot], pending);
+    }
+
+    @Override
+    double parsedValue() {
+      return pending;
+    }
+
+    @Override
+    protected void store(int slot) {
+      values[slot] = pending;
+    }
+
+    @Override
+    protected long valueBytes() {
+      return 16 + 8L * capacity();
+    }
+
+    @Override
+    boolean isNumeric() {
+      return true;
+    }
+
+    @Override
+    long bits(int slot) {
+      return Double.doubleToRawLongBits(values[slot]);
+    }
+
+    @Override
+    protected String format(int slot) {
+      return formatDouble(values[slot]);
+    }
+  }
+
+  static class BooleanHistory extends HistoryBuffer {
+
+    private final boolean[] values;
+
+    private boolean pending;
+
+    BooleanHistory(int capacity) {
+      super(capacity);
+      values = new boolean[capacity()];
+    }
+
+    @Override
+    protected boolean parse(String value) {
+      String trimmed = value.trim();
+      if ("true".equalsIgnoreCase(trimmed)) {
+        pending = true;
+      } else if ("false".equalsIgnoreCase(trimmed)) {
+        pending = false;
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    protected boolean suppresses(int slot, Deadband deadband) {
+      return pending == values[slot];
+    }
+
+    @Override
+    protected void store(int slot) {
+      values[slot] = pending;
+    }
+
+    @Override
+    protected long valueBytes() {
+      return 16 + capacity();
+    }
+
+    @Override
+    protected String format(int slot) {
+      return Boolean.toString(values[slot]);
+    }
+  }
+}
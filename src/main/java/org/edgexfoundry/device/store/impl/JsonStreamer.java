@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a flat JSON object of string properties straight to a character or byte sink, without
+ * building a tree first. Strings are escaped as Gson's JsonWriter escapes them, so the output is
+ * the same text as the equivalent JsonObject's toString; bytes are UTF-8. Properties are written
+ * one at a time, so a writer holds no state between them beyond whether a comma is due. Bytes for
+ * an output stream are buffered and written to it by {@link #end()}.
+ *
+ * @author Jim White
+ *
+ */
+final class JsonStreamer {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  // large enough for a typical object, so the stream sees one write
+  private static final int STREAM_BUFFER = 512;
+
+  private final Appendable chars;
+
+  private final ByteSink bytes;
+
+  private final OutputStream stream;
+
+  private boolean first = true;
+
+  private JsonStreamer(Appendable chars, ByteSink bytes, OutputStream stream) {
+    this.chars = chars;
+    this.bytes = bytes;
+    this.stream = stream;
+  }
+
+  static JsonStreamer to(Appendable out) {
+    return new JsonStreamer(out, null, null);
+  }
+
+  static JsonStreamer to(OutputStream out) {
+    OutputStream buffered = new BufferedOutputStream(out, STREAM_BUFFER);
+    return new JsonStreamer(null, buffered::write, buffered);
+  }
+
+  /**
+   * Writes to the buffer from its position, throwing
+   * {@link java.nio.BufferOverflowException} if the object does not fit.
+   */
+  static JsonStreamer to(ByteBuffer out) {
+    return new JsonStreamer(null, b -> out.put((byte) b), null);
+  }
+
+  JsonStreamer begin() throws IOException {
+    write('{');
+    return this;
+  }
+
+  /**
+   * Write a property, null values as JSON null.
+   */
+  JsonStreamer property(String name, String value) throws IOException {
+    if (!first) {
+      write(',');
+    }
+    first = false;
+    string(name);
+    write(':');
+    if (value == null) {
+      write('n');
+      write('u');
+      write('l');
+      write('l');
+    } else {
+      string(value);
+    }
+    return this;
+  }
+
+  void end() throws IOException {
+    write('}');
+    if (stream != null) {
+      stream.flush();
+    }
+  }
+
+  private void string(String value) throws IOException {
+    write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+        case '\\':
+          write('\\');
+          write(c);
+          break;
+        case '\t':
+          escape('t');
+          break;
+        case '\b':
+          escape('b');
+          break;
+        case '\n':
+          escape('n');
+          break;
+        case '\r':
+          escape('r');
+          break;
+        case '\f':
+          escape('f');
+          break;
+        case '\u2028':
+        case '\u2029':
+          unicode(c);
+          break;
+        default:
+          if (c < 0x20) {
+            unicode(c);
+          } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+              && Character.isLowSurrogate(value.charAt(i + 1))) {
+            writeCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+          } else {
+            write(c);
+          }
+      }
+    }
+    write('"');
+  }
+
+  private void escape(char c) throws IOException {
+    write('\\');
+    write(c);
+  }
+
+  private void unicode(char c) throws IOException {
+    write('\\');
+    write('u');
+    write(HEX[(c >> 12) & 0xf]);
+    write(HEX[(c >> 8) & 0xf]);
+    write(HEX[(c >> 4) & 0xf]);
+    write(HEX[c & 0xf]);
+  }
+
+  private void write(char c) throws IOException {
+    if (chars != null) {
+      chars.append(c);
+    } else if (c < 0x80) {
+      bytes.write(c);
+    } else if (c < 0x800) {
+      bytes.write(0xc0 | (c >> 6));
+      bytes.write(0x80 | (c & 0x3f));
+    } else if (Character.isSurrogate(c)) {
+      // a surrogate without its pair cannot be encoded, replace it as String.getBytes does
+      bytes.write('?');
+    } else {
+      bytes.write(0xe0 | (c >> 12));
+      bytes.write(0x80 | ((c >> 6) & 0x3f));
+      bytes.write(0x80 | (c & 0x3f));
+    }
+  }
+
+  private void writeCodePoint(int codePoint) throws IOException {
+    if (chars != null) {
+      chars.append(Character.highSurrogate(codePoint));
+      chars.append(Character.lowSurrogate(codePoint));
+    } else {
+      bytes.write(0xf0 | (codePoint >> 18));
+      bytes.write(0x80 | ((codePoint >> 12) & 0x3f));
+      bytes.write(0x80 | ((codePoint >> 6) & 0x3f));
+      bytes.write(0x80 | (codePoint & 0x3f));
+    }
+  }
+
+  @FunctionalInterface
+  private interface ByteSink {
+    void write(int b) throws IOException;
+  }
+}
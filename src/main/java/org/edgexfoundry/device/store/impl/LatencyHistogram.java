@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.edgexfoundry.device.domain.LatencySummary;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets in the manner of HdrHistogram:
+ * each power of two range is split into 16 equal buckets, so a recorded value is known to within
+ * about 6% whatever its magnitude. Recording is a bucket index computed from the value's leading
+ * zeros and an atomic increment; it takes no locks and allocates nothing, so it can be left on in
+ * hot paths.
+ *
+ * @author Jim White
+ *
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // longer durations are recorded as 2^42 ns, a little over an hour
+  private static final int MAX_MAGNITUDE = 41;
+
+  private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+  private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder total = new LongAdder();
+
+  private final AtomicLong max = new AtomicLong();
+
+  private final long started = System.nanoTime();
+
+  void record(long nanos) {
+    long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+    counts.incrementAndGet(index(value));
+    total.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Summarize the durations recorded so far. Recordings made while the summary is taken may be
+   * partly reflected.
+   */
+  LatencySummary summarize() {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+
+    long largest = max.get();
+    long[] values = new long[PERCENTILES.length];
+    int bucket = 0;
+    long seen = 0;
+    for (int p = 0; p < PERCENTILES.length && count > 0; p++) {
+      long rank = Math.max(1, (long) Math.ceil(PERCENTILES[p] * count));
+      while (bucket < BUCKETS - 1 && seen + snapshot[bucket] < rank) {
+        seen += snapshot[bucket++];
+      }
+      values[p] = Math.min(highestEquivalent(bucket), largest);
+    }
+
+    double seconds = (System.nanoTime() - started) / 1e9;
+    return new LatencySummary(count, seconds > 0 ? count / seconds : 0,
+        count == 0 ? Double.NaN : (double) total.sum() / count, values[0], values[1], values[2],
+        values[3], largest);
+  }
+
+  /**
+   * Values below 16 have a bucket each; above, the bucket is picked by the position of the highest
+   * set bit and the four bits below it.
+   */
+  private static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the largest value recorded in the bucket
+   */
+  private static long highestEquivalent(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,518 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+
+/**
+ * Write-behind log of the latest value of every device object. Writers only record the value in a
+ * map of pending values, where a newer value of the same object replaces the older one, and wake
+ * the log's thread; they never wait on the disk. The thread appends everything pending as one
+ * batch and forces it to disk once (group commit), and at intervals compacts the log by writing the
+ * latest values to a snapshot file and starting an empty log.
+ *
+ * Records carry their length and a CRC, so recovery reads the snapshot and then the log up to the
+ * first torn or corrupt record, and cuts the log there. A batch that fails to be written is cut
+ * from the log the same way and written again. Values pending when the process dies are lost.
+ *
+ * @author Jim White
+ *
+ */
+class LatestValueLog {
+
+  private static final EdgeXLogger logger =
+      EdgeXLoggerFactory.getEdgeXLogger(LatestValueLog.class);
+
+  private static final String LOG_FILE = "latest.log";
+
+  private static final String SNAPSHOT_FILE = "latest.snapshot";
+
+  private static final String SNAPSHOT_TEMP = "latest.snapshot.tmp";
+
+  // record header: payload length and CRC32 of the payload
+  private static final int RECORD_HEADER = 8;
+
+  private static final byte KIND_VALUE = 0;
+
+  private static final byte KIND_REMOVE = 1;
+
+  private static final IoTType[] TYPES = IoTType.values();
+
+  private final Path directory;
+
+  private final long compactInterval;
+
+  // values not yet written, the latest per object
+  private final Map<Point, LoggedValue> pending = new ConcurrentHashMap<>();
+
+  // devices removed since the last batch, written before the batch's values
+  private final ConcurrentLinkedQueue<String> removals = new ConcurrentLinkedQueue<>();
+
+  // latest value of every object, as of the last batch; only used by the log's thread
+  private final Map<Point, LoggedValue> latest = new HashMap<>();
+
+  private final CRC32 crc = new CRC32();
+
+  private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+  private FileChannel log;
+
+  // length of the log's complete records after a batch failed part way, -1 when the log ends
+  // with a complete record
+  private long intact = -1;
+
+  private Thread writer;
+
+  private volatile boolean running;
+
+  private volatile boolean idle;
+
+  /**
+   * @param directory directory of the log and snapshot files
+   * @param compactInterval milliseconds between compactions of the log into the snapshot
+   */
+  LatestValueLog(String directory, long compactInterval) throws IOException {
+    this.directory = Paths.get(directory);
+    this.compactInterval = compactInterval;
+    Files.createDirectories(this.directory);
+  }
+
+  /**
+   * Read back the latest values from the snapshot and the log, then open the log for appending
+   * and start the log's thread. Must be called once, before any value is appended.
+   * 
+   * @return the latest value of every object logged and not removed since
+   */
+  synchronized Collection<LoggedValue> open() throws IOException {
+    read(directory.resolve(SNAPSHOT_FILE));
+    long valid = read(directory.resolve(LOG_FILE));
+
+    log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+    if (log.size() > valid) {
+      logger.warn("Discarding " + (log.size() - valid) + " bytes of torn records at the end of "
+          + directory.resolve(LOG_FILE));
+      log.truncate(valid);
+    }
+    log.position(valid);
+
+    running = true;
+    writer = new Thread(this::run, "object-store-log");
+    writer.setDaemon(true);
+    writer.start();
+    return new ArrayList<>(latest.values());
+  }
+
+  /**
+   * Record the latest value of an object; it is written by the log's thread.
+   */
+  void append(String deviceId, String objectName, IoTType type, String value, long timestamp) {
+    Point point = new Point(deviceId, objectName);
+    pending.put(point, new LoggedValue(point, type, value, timestamp));
+    wake();
+  }
+
+  /**
+   * Record that a device and all of its values were removed.
+   */
+  void remove(String deviceId) {
+    pending.keySet().removeIf(point -> point.deviceId.equals(deviceId));
+    removals.add(deviceId);
+    wake();
+  }
+
+  /**
+   * Write whatever is pending, stop the log's thread and close the log.
+   */
+  synchronized void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+      log.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      logger.error("Could not close the latest value log: " + e.getMessage());
+    }
+  }
+
+  private void wake() {
+    // the thread sets idle before it checks for pending work, so a wake up is never lost
+    if (idle) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  private void run() {
+    long nextCompaction = System.currentTimeMillis() + compactInterval;
+    boolean appended = false;
+
+    while (running || !pending.isEmpty() || !removals.isEmpty()) {
+      try {
+        if (commit()) {
+          appended = true;
+        } else {
+          idle = true;
+          if (pending.isEmpty() && removals.isEmpty() && running) {
+            // with nothing appended since the last compaction there is no deadline to wake for
+            if (appended) {
+              LockSupport.parkNanos(
+                  TimeUnit.MILLISECONDS.toNanos(Math.max(1, nextCompaction - now())));
+            } else {
+              LockSupport.park();
+            }
+          }
+          idle = false;
+        }
+
+        if (appended && now() >= nextCompaction) {
+          compact();
+          appended = false;
+          nextCompaction = now() + compactInterval;
+        }
+      } catch (IOException e) {
+        logger.error("Could not write the latest value log: " + e.getMessage());
+        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+      }
+    }
+  }
+
+  private static long now() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Append the pending removals and values as one batch and force it to disk.
+   * 
+   * @return false if nothing was pending
+   */
+  private boolean commit() throws IOException {
+    if (intact >= 0) {
+      // cut a partly written batch before appending after it, or recovery would stop there
+      log.truncate(intact);
+      log.position(intact);
+      intact = -1;
+    }
+
+    if (pending.isEmpty() && removals.isEmpty()) {
+      return false;
+    }
+
+    buffer.clear();
+    List<String> removed = new ArrayList<>();
+    for (String deviceId = removals.poll(); deviceId != null; deviceId = removals.poll()) {
+      String device = deviceId;
+      latest.keySet().removeIf(point -> point.deviceId.equals(device));
+      encodeRemoval(deviceId);
+      removed.add(deviceId);
+    }
+
+    List<LoggedValue> batch = new ArrayList<>();
+    Iterator<Map.Entry<Point, LoggedValue>> values = pending.entrySet().iterator();
+    while (values.hasNext()) {
+      Map.Entry<Point, LoggedValue> entry = values.next();
+      // only take the value written out, a newer one stays pending
+      if (pending.remove(entry.getKey(), entry.getValue())) {
+        latest.put(entry.getKey(), entry.getValue());
+        encodeValue(entry.getValue());
+        batch.add(entry.getValue());
+      }
+    }
+
+    long start = log.position();
+    try {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        log.write(buffer);
+      }
+      log.force(false);
+    } catch (IOException e) {
+      // the batch is written again, after the records it may have torn are cut
+      intact = start;
+      removals.addAll(removed);
+      for (LoggedValue value : batch) {
+        pending.putIfAbsent(value.point, value);
+      }
+      throw e;
+    }
+    return true;
+  }
+
+  /**
+   * Write the latest values to a new snapshot, replace the old one and empty the log. A crash
+   * before the log is emptied replays values the snapshot already holds, which is harmless.
+   */
+  private void compact() throws IOException {
+    Path temp = directory.resolve(SNAPSHOT_TEMP);
+    try (FileChannel snapshot = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      buffer.clear();
+      for (LoggedValue value : latest.values()) {
+        encodeValue(value);
+        if (buffer.position() > buffer.capacity() / 2) {
+          write(snapshot);
+        }
+      }
+      write(snapshot);
+      snapshot.force(false);
+    }
+
+    Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    log.truncate(0);
+    log.position(0);
+    log.force(false);
+    logger.debug("Compacted the latest value log into " + latest.size() + " values");
+  }
+
+  private void write(FileChannel channel) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void encodeRemoval(String deviceId) {
+    byte[] device = deviceId.getBytes(StandardCharsets.UTF_8);
+    int start = beginRecord(1 + 2 + device.length);
+    buffer.put(KIND_REMOVE);
+    putBytes(device);
+    endRecord(start);
+  }
+
+  private void encodeValue(LoggedValue value) {
+    byte[] device = value.getDeviceId().getBytes(StandardCharsets.UTF_8);
+    byte[] object = value.getObjectName().getBytes(StandardCharsets.UTF_8);
+    byte[] text = value.getValue().getBytes(StandardCharsets.UTF_8);
+    int start = beginRecord(1 + 2 + device.length + 2 + object.length + 1 + 8 + 4 + text.length);
+    buffer.put(KIND_VALUE);
+    putBytes(device);
+    putBytes(object);
+    buffer.put((byte) (value.getType() == null ? -1 : value.getType().ordinal()));
+    buffer.putLong(value.getTimestamp());
+    buffer.putInt(text.length);
+    buffer.put(text);
+    endRecord(start);
+  }
+
+  /**
+   * Reserve room for a record's header and payload, growing the buffer if needed.
+   * 
+   * @return position of the record's header
+   */
+  private int beginRecord(int payload) {
+    if (buffer.remaining() < RECORD_HEADER + payload) {
+      int capacity = Math.max(buffer.capacity() * 2, buffer.position() + RECORD_HEADER + payload);
+      ByteBuffer grown = ByteBuffer.allocate(capacity);
+      buffer.flip();
+      grown.put(buffer);
+      buffer = grown;
+    }
+    int start = buffer.position();
+    buffer.putInt(payload);
+    buffer.putInt(0);
+    return start;
+  }
+
+  private void endRecord(int start) {
+    crc.reset();
+    crc.update(buffer.array(), start + RECORD_HEADER, buffer.position() - start - RECORD_HEADER);
+    buffer.putInt(start + 4, (int) crc.getValue());
+  }
+
+  private void putBytes(byte[] bytes) {
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+  }
+
+  /**
+   * Apply the records of a file to the latest values, stopping at the first torn or corrupt
+   * record.
+   * 
+   * @return length of the file's valid records
+   */
+  private long read(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // read onto the heap rather than mapped, a mapping would outlive the channel and pin the
+      // file that is truncated and replaced afterwards
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to be read");
+      }
+      ByteBuffer records = ByteBuffer.allocate((int) channel.size());
+      while (records.hasRemaining()) {
+        if (channel.read(records) < 0) {
+          break;
+        }
+      }
+      records.flip();
+      byte[] payload = new byte[256];
+      CRC32 check = new CRC32();
+
+      while (records.remaining() >= RECORD_HEADER) {
+        int start = records.position();
+        int length = records.getInt();
+        int expected = records.getInt();
+        if (length <= 0 || length > records.remaining()) {
+          records.position(start);
+          break;
+        }
+        if (payload.length < length) {
+          payload = new byte[Math.max(length, payload.length * 2)];
+        }
+        records.get(payload, 0, length);
+        check.reset();
+        check.update(payload, 0, length);
+        if ((int) check.getValue() != expected) {
+          records.position(start);
+          break;
+        }
+        apply(ByteBuffer.wrap(payload, 0, length));
+      }
+
+      return records.position();
+    }
+  }
+
+  private void apply(ByteBuffer record) {
+    byte kind = record.get();
+    String deviceId = getString(record, record.getShort() & 0xffff);
+
+    if (kind == KIND_REMOVE) {
+      latest.keySet().removeIf(point -> point.deviceId.equals(deviceId));
+      return;
+    }
+
+    String objectName = getString(record, record.getShort() & 0xffff);
+    int type = record.get();
+    long timestamp = record.getLong();
+    String value = getString(record, record.getInt());
+    Point point = new Point(deviceId, objectName);
+    latest.put(point, new LoggedValue(point, type < 0 || type >= TYPES.length ? null : TYPES[type],
+        value, timestamp));
+  }
+
+  private static String getString(ByteBuffer record, int length) {
+    String value =
+        new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+    record.position(record.position() + length);
+    return value;
+  }
+
+  private static final class Point {
+
+    private final String deviceId;
+
+    private final String objectName;
+
+    Point(String deviceId, String objectName) {
+      this.deviceId = deviceId;
+      this.objectName = objectName;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Point)) {
+        return false;
+      }
+      Point point = (Point) other;
+      return deviceId.equals(point.deviceId) && objectName.equals(point.objectName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * deviceId.hashCode() + objectName.hashCode();
+    }
+  }
+
+  /**
+   * The latest value of a device object as logged.
+   */
+  static final class LoggedValue {
+
+    private final Point point;
+
+    private final IoTType type;
+
+    private final String value;
+
+    private final long timestamp;
+
+    private LoggedValue(Point point, IoTType type, String value, long timestamp) {
+      this.point = point;
+      this.type = type;
+      this.value = value;
+      this.timestamp = timestamp;
+    }
+
+    String getDeviceId() {
+      return point.deviceId;
+    }
+
+    String getObjectName() {
+      return point.objectName;
+    }
+
+    IoTType getType() {
+      return type;
+    }
+
+    String getValue() {
+      return value;
+    }
+
+    long getTimestamp() {
+      return timestamp;
+    }
+  }
+}
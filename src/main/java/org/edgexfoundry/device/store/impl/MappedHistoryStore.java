@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+
+/**
+ * Persistent copy of the object histories in memory mapped segment files. Each segment holds a
+ * fixed number of slots and each slot holds the ring of one (device, object) history as fixed size
+ * records, so a write is a copy into the mapped page and an update of the slot's write count with
+ * no system call. The operating system writes the pages back; recovery after a restart is a remap
+ * of the segments and a scan of their slots.
+ *
+ * Segments record the geometry (history depth and value size) they were written with. Histories in
+ * segments of a different geometry are still recovered and then copied into new segments.
+ *
+ * @author Jim White
+ *
+ */
+class MappedHistoryStore {
+
+  private static final EdgeXLogger logger =
+      EdgeXLoggerFactory.getEdgeXLogger(MappedHistoryStore.class);
+
+  private static final int MAGIC = 0xED6E0001;
+
+  private static final int VERSION = 2;
+
+  private static final String SEGMENT_PREFIX = "history-";
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final int SLOTS_PER_SEGMENT = 256;
+
+  // segment header: magic, version, capacity, value size, slots
+  private static final int SEGMENT_HEADER = 20;
+
+  private static final int MAX_NAME_BYTES = 256;
+
+  // slot header: in use flag, value type, write count, device id and object name
+  private static final int SLOT_USED = 0;
+  private static final int SLOT_TYPE = 1;
+  private static final int SLOT_WRITES = 2;
+  private static final int SLOT_DEVICE = 10;
+  private static final int SLOT_OBJECT = SLOT_DEVICE + 2 + MAX_NAME_BYTES;
+  private static final int SLOT_HEADER = SLOT_OBJECT + 2 + MAX_NAME_BYTES;
+
+  // record: capture time, value length and the value bytes, length -1 marks a value too large to
+  // keep
+  private static final int RECORD_TIMESTAMP = 0;
+  private static final int RECORD_LENGTH = 8;
+  private static final int RECORD_VALUE = 10;
+
+  private final Path directory;
+
+  private final int capacity;
+
+  private final int valueSize;
+
+  private final int recordSize;
+
+  private final int slotSize;
+
+  private final List<Segment> segments = new ArrayList<>();
+
+  private final Deque<Slot> freeSlots = new ArrayDeque<>();
+
+  // slots of devices evicted from memory, by device id, kept until the device is used again
+  private final Map<String, List<Slot>> detached = new HashMap<>();
+
+  MappedHistoryStore(String directory, int capacity, int valueSize) throws IOException {
+    this.directory = Paths.get(directory);
+    this.capacity = Math.max(capacity, 1);
+    this.valueSize = valueSize;
+    this.recordSize = RECORD_VALUE + valueSize;
+    long slotBytes = SLOT_HEADER + (long) this.capacity * recordSize;
+    if (SEGMENT_HEADER + SLOTS_PER_SEGMENT * slotBytes > Integer.MAX_VALUE) {
+      throw new IOException("Histories of " + capacity + " values of " + valueSize
+          + " bytes are too large to be mapped in segments of " + SLOTS_PER_SEGMENT + " slots");
+    }
+    this.slotSize = (int) slotBytes;
+    Files.createDirectories(this.directory);
+  }
+
+  /**
+   * Map the existing segments and read back every history they hold, oldest value first. Must be
+   * called once, before any slot is allocated.
+   */
+  synchronized List<RecoveredHistory> recover() throws IOException {
+    List<RecoveredHistory> recovered = new ArrayList<>();
+    List<RecoveredHistory> migrated = new ArrayList<>();
+    List<Path> obsolete = new ArrayList<>();
+
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+          MappedByteBuffer buffer =
+              raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+
+          if (raf.length() < SEGMENT_HEADER || buffer.getInt(0) != MAGIC) {
+            logger.error("Ignoring unrecognized history segment " + file);
+            continue;
+          }
+
+          if (buffer.getInt(4) != VERSION) {
+            logger.error("Discarding history segment " + file + " of unsupported version "
+                + buffer.getInt(4));
+            obsolete.add(file);
+            continue;
+          }
+
+          Segment segment = new Segment(file, buffer);
+          int segmentCapacity = buffer.getInt(8);
+          int segmentValueSize = buffer.getInt(12);
+          int slots = buffer.getInt(16);
+          boolean current = segmentCapacity == capacity && segmentValueSize == valueSize;
+          int segmentRecordSize = RECORD_VALUE + segmentValueSize;
+          long segmentSlotSize = SLOT_HEADER + (long) segmentCapacity * segmentRecordSize;
+
+          for (int i = 0; i < slots; i++) {
+            long offset = SEGMENT_HEADER + (long) i * segmentSlotSize;
+            if (offset + segmentSlotSize > buffer.capacity()) {
+              logger.error("History segment " + file + " is truncated after " + i + " slots");
+              break;
+            }
+            Slot slot = new Slot(segment, (int) offset);
+            if (slot.isUsed()) {
+              (current ? recovered : migrated).add(slot.read(segmentCapacity, segmentRecordSize));
+            } else if (current) {
+              freeSlots.add(slot);
+            }
+          }
+
+          if (current) {
+            segments.add(segment);
+          } else {
+            obsolete.add(file);
+          }
+        }
+      }
+    }
+
+    // copy histories of a previous geometry into the current one, keeping the newest values; the
+    // old segments are only deleted once every history is copied, and a history already copied
+    // before a crash is not copied twice
+    Set<String> current = new HashSet<>();
+    for (RecoveredHistory history : recovered) {
+      current.add(history.getDeviceId() + "/" + history.getObjectName());
+    }
+    for (RecoveredHistory history : migrated) {
+      if (!current.add(history.getDeviceId() + "/" + history.getObjectName())) {
+        continue;
+      }
+      Slot slot = allocate(history.getDeviceId(), history.getObjectName(), history.getType());
+      List<String> values = history.getValues();
+      long[] timestamps = history.getTimestamps();
+      if (slot != null) {
+        for (int i = Math.max(0, values.size() - capacity); i < values.size(); i++) {
+          slot.append(values.get(i), timestamps[i]);
+        }
+      }
+      recovered.add(new RecoveredHistory(history.getDeviceId(), history.getObjectName(),
+          history.getType(), values, timestamps, slot));
+    }
+
+    for (Path file : obsolete) {
+      Files.delete(file);
+    }
+
+    return recovered;
+  }
+
+  /**
+   * Allocate the slot for a (device, object) history.
+   * 
+   * @return the slot or null if the names are too long to be recorded in a slot
+   */
+  synchronized Slot allocate(String deviceId, String objectName, IoTType type)
+      throws IOException {
+    if (deviceId.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES
+        || objectName.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+      logger.error("History of " + deviceId + "/" + objectName
+          + " cannot be persisted, names are limited to " + MAX_NAME_BYTES + " bytes");
+      return null;
+    }
+
+    Slot slot = freeSlots.poll();
+
+    if (slot == null) {
+      Segment segment = createSegment();
+      for (int i = 1; i < SLOTS_PER_SEGMENT; i++) {
+        freeSlots.add(new Slot(segment, (int) (SEGMENT_HEADER + (long) i * slotSize)));
+      }
+      slot = new Slot(segment, SEGMENT_HEADER);
+    }
+
+    slot.claim(deviceId, objectName, type);
+    return slot;
+  }
+
+  /**
+   * Return a slot to the free list, for histories that are no longer kept.
+   */
+  synchronized void release(Slot slot) {
+    slot.segment.buffer.put(slot.offset + SLOT_USED, (byte) 0);
+    freeSlots.add(slot);
+  }
+
+  /**
+   * Keep the slot of a device evicted from memory, so its history survives and is handed back when
+   * the device is used again.
+   */
+  synchronized void detach(String deviceId, Slot slot) {
+    detached.computeIfAbsent(deviceId, id -> new ArrayList<>()).add(slot);
+  }
+
+  /**
+   * Read back the histories of an evicted device, which continue to be written to their slots.
+   */
+  synchronized List<RecoveredHistory> reattach(String deviceId) {
+    List<Slot> slots = detached.remove(deviceId);
+    if (slots == null) {
+      return new ArrayList<>();
+    }
+
+    List<RecoveredHistory> histories = new ArrayList<>(slots.size());
+    for (Slot slot : slots) {
+      histories.add(slot.read(capacity, recordSize));
+    }
+    return histories;
+  }
+
+  /**
+   * Free the slots of an evicted device that has been removed.
+   */
+  synchronized void releaseDetached(String deviceId) {
+    List<Slot> slots = detached.remove(deviceId);
+    if (slots != null) {
+      slots.forEach(this::release);
+    }
+  }
+
+  /**
+   * Ask the operating system to write all mapped pages back to disk.
+   */
+  synchronized void flush() {
+    for (Segment segment : segments) {
+      segment.buffer.force();
+    }
+  }
+
+  private Segment createSegment() throws IOException {
+    int index = segments.size();
+    Path file;
+    do {
+      file = directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, index++, SEGMENT_SUFFIX));
+    } while (Files.exists(file));
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      long length = SEGMENT_HEADER + (long) SLOTS_PER_SEGMENT * slotSize;
+      raf.setLength(length);
+      MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, capacity);
+      buffer.putInt(12, valueSize);
+      buffer.putInt(16, SLOTS_PER_SEGMENT);
+      Segment segment = new Segment(file, buffer);
+      segments.add(segment);
+      logger.debug("Created history segment " + file);
+      return segment;
+    }
+  }
+
+  private static final class Segment {
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    Segment(Path file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public String toString() {
+      return file.toString();
+    }
+  }
+
+  /**
+   * The persistent ring of one (device, object) history. Appends are made by the owning device
+   * entry's writer only and use absolute puts, so slots sharing a segment never interfere.
+   */
+  final class Slot {
+
+    private final Segment segment;
+
+    private final int offset;
+
+    Slot(Segment segment, int offset) {
+      this.segment = segment;
+      this.offset = offset;
+    }
+
+    void append(String value, long timestamp) {
+      MappedByteBuffer buffer = segment.buffer;
+      long writes = buffer.getLong(offset + SLOT_WRITES);
+      int record = offset + SLOT_HEADER + (int) (writes % capacity) * recordSize;
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.putLong(record + RECORD_TIMESTAMP, timestamp);
+
+      if (bytes.length > valueSize) {
+        buffer.putShort(record + RECORD_LENGTH, (short) -1);
+      } else {
+        for (int i = 0; i < bytes.length; i++) {
+          buffer.put(record + RECORD_VALUE + i, bytes[i]);
+        }
+        buffer.putShort(record + RECORD_LENGTH, (short) bytes.length);
+      }
+
+      buffer.putLong(offset + SLOT_WRITES, writes + 1);
+    }
+
+    private boolean isUsed() {
+      return segment.buffer.get(offset + SLOT_USED) != 0;
+    }
+
+    private void claim(String deviceId, String objectName, IoTType type) {
+      MappedByteBuffer buffer = segment.buffer;
+      buffer.putLong(offset + SLOT_WRITES, 0);
+      buffer.put(offset + SLOT_TYPE, (byte) (type == null ? -1 : type.ordinal()));
+      putName(offset + SLOT_DEVICE, deviceId);
+      putName(offset + SLOT_OBJECT, objectName);
+      buffer.put(offset + SLOT_USED, (byte) 1);
+    }
+
+    private RecoveredHistory read(int slotCapacity, int slotRecordSize) {
+      MappedByteBuffer buffer = segment.buffer;
+      byte typeOrdinal = buffer.get(offset + SLOT_TYPE);
+      IoTType type = typeOrdinal < 0 || typeOrdinal >= IoTType.values().length ? null
+          : IoTType.values()[typeOrdinal];
+      long writes = buffer.getLong(offset + SLOT_WRITES);
+      List<String> values = new ArrayList<>();
+      long[] timestamps = new long[(int) Math.min(writes, slotCapacity)];
+
+      for (long i = Math.max(0, writes - slotCapacity); i < writes; i++) {
+        int record = offset + SLOT_HEADER + (int) (i % slotCapacity) * slotRecordSize;
+        short length = buffer.getShort(record + RECORD_LENGTH);
+        if (length >= 0) {
+          timestamps[values.size()] = buffer.getLong(record + RECORD_TIMESTAMP);
+          values.add(getString(record + RECORD_VALUE, length));
+        }
+      }
+
+      return new RecoveredHistory(getName(offset + SLOT_DEVICE), getName(offset + SLOT_OBJECT),
+          type, values, Arrays.copyOf(timestamps, values.size()), this);
+    }
+
+    private void putName(int position, String name) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      segment.buffer.putShort(position, (short) bytes.length);
+      for (int i = 0; i < bytes.length; i++) {
+        segment.buffer.put(position + 2 + i, bytes[i]);
+      }
+    }
+
+    private String getName(int position) {
+      return getString(position + 2, segment.buffer.getShort(position));
+    }
+
+    private String getString(int position, int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = segment.buffer.get(position + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * A history read back from the segments, with the slot it continues to be written to (null for a
+   * history that could not be given a new slot).
+   */
+  static final class RecoveredHistory {
+
+    private final String deviceId;
+
+    private final String objectName;
+
+    private final IoTType type;
+
+    private final List<String> values;
+
+    private final long[] timestamps;
+
+    private final Slot slot;
+
+    RecoveredHistory(String deviceId, String objectName, IoTType type, List<String> values,
+        long[] timestamps, Slot slot) {
+      this.deviceId = deviceId;
+      this.objectName = objectName;
+      this.type = type;
+      this.values = values;
+      this.timestamps = timestamps;
+      this.slot = slot;
+    }
+
+    String getDeviceId() {
+      return deviceId;
+    }
+
+    String getObjectName() {
+      return objectName;
+    }
+
+    IoTType getType() {
+      return type;
+    }
+
+    List<String> getValues() {
+      return values;
+    }
+
+    long[] getTimestamps() {
+      return timestamps;
+    }
+
+    Slot getSlot() {
+      return slot;
+    }
+  }
+}
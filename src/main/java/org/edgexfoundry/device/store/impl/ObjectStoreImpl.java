@@ -18,18 +18,45 @@
 
 package org.edgexfoundry.device.store.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import org.edgexfoundry.device.domain.ServiceObject;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.edgexfoundry.device.domain.Deadband;
+import org.edgexfoundry.device.domain.DeviceUsage;
+import org.edgexfoundry.device.domain.LatestValues;
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.edgexfoundry.device.domain.Rollup;
+import org.edgexfoundry.device.domain.SubscriptionFilter;
+import org.edgexfoundry.device.domain.configuration.DeadbandConfiguration;
 import org.edgexfoundry.device.store.ObjectStore;
+import org.edgexfoundry.device.store.ObjectStoreListener;
 import org.edgexfoundry.device.store.ProfileStore;
+import org.edgexfoundry.device.store.Subscription;
+import org.edgexfoundry.device.store.impl.LatestValueLog.LoggedValue;
+import org.edgexfoundry.device.store.impl.MappedHistoryStore.RecoveredHistory;
 import org.edgexfoundry.domain.core.Reading;
 import org.edgexfoundry.domain.meta.Device;
 import org.edgexfoundry.domain.meta.ResourceOperation;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
@@ -40,15 +67,180 @@ import com.google.gson.JsonObject;
 @Repository
 public class ObjectStoreImpl implements ObjectStore {
 
+  private static final EdgeXLogger logger =
+      EdgeXLoggerFactory.getEdgeXLogger(ObjectStoreImpl.class);
+
+  // number of values kept in each device object's history
   @Value("${data.cache.size:1}")
   private int cacheSize;
 
+  // hold numeric and boolean values in primitive form, building strings only when read; values
+  // are read back in canonical form: whole numbers without a plus sign or leading zeros, decimals
+  // as the shortest plain decimal (72.50 as 72.5, 1e3 as 1000.0, 1.5f and 0x1p3 as 1.5 and 8.0),
+  // and booleans in lower case
+  @Value("${data.cache.typed:false}")
+  private boolean typed;
+
+  // directory of the memory mapped history segments, histories are not persisted when empty
+  @Value("${data.cache.persist.path:}")
+  private String persistPath;
+
+  // largest value (in UTF-8 bytes) kept by the persistent history, larger values are not persisted
+  @Value("${data.cache.persist.valueSize:64}")
+  private int persistValueSize;
+
+  // directory of the write-behind log of latest values, values are not logged when empty
+  @Value("${data.cache.log.path:}")
+  private String logPath;
+
+  // milliseconds between compactions of the latest value log into its snapshot
+  @Value("${data.cache.log.compactInterval:300000}")
+  private long logCompactInterval;
+
+  // estimated heap bytes held by the cache before cold devices are evicted, 0 for no limit
+  @Value("${data.cache.budget:0}")
+  private long cacheBudget;
+
+  // width in milliseconds of the rollup windows kept for numeric objects, 0 to keep no rollups
+  @Value("${data.rollup.width:0}")
+  private long rollupWidth;
+
+  // number of most recent rollup windows kept for each numeric object
+  @Value("${data.rollup.windows:12}")
+  private int rollupWindows;
+
+  // compressed blocks of values archived per numeric object once they leave its history, each
+  // block holding data.cache.size values; 0 archives nothing. Requires data.cache.typed
+  @Value("${data.cache.archive.blocks:0}")
+  private int archiveBlocks;
+
+  // devices of a bulk profile query above which they are read in parallel
+  @Value("${data.query.parallelThreshold:1000}")
+  private int parallelThreshold;
+
+  // puts queued per subscription before puts are dropped for a slow listener
+  @Value("${data.subscription.queue:1024}")
+  private int subscriptionQueue;
+
+  // record latency histograms and response hit counts on the hot paths
+  @Value("${data.metrics.enabled:true}")
+  private boolean metricsEnabled = true;
+
   @Autowired
   private ProfileStore profileStore;
 
-  private Map<String, Map<String, List<String>>> objectCache = new HashMap<>();
+  @Autowired
+  private SymbolTable symbols;
+
+  // per descriptor write deadbands, every value is stored when not configured
+  @Autowired(required = false)
+  private DeadbandConfiguration deadbandConfiguration;
+
+  // cache of each device's object history and operation responses keyed by device id
+  private Map<String, DeviceEntry> deviceCache = new ConcurrentHashMap<>();
+
+  // entries of the devices with a slot, indexed by the slot bound into their operation plans;
+  // a cache of deviceCache, replaced by a larger copy as slots are assigned
+  private volatile AtomicReferenceArray<DeviceEntry> slotEntries = new AtomicReferenceArray<>(64);
+
+  // plans bound to the symbol table, for profile stores that hand out unbound plans; held weakly
+  // so a plan dropped by its profile store is dropped here as well
+  private final Map<OperationPlan, OperationPlan> boundPlans =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private MappedHistoryStore persistence;
+
+  private LatestValueLog valueLog;
+
+  // estimated heap bytes held by all device entries
+  private final AtomicLong usage = new AtomicLong();
+
+  private final DeviceEvictionPolicy evictionPolicy = new DeviceEvictionPolicy();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final ReadingDispatcher dispatcher = new ReadingDispatcher();
+
+  private final StoreMetrics metrics = new StoreMetrics();
 
-  private Map<String, Map<String, List<Reading>>> responseCache = new HashMap<>();
+  // compresses archived history blocks off the writers' path, its thread starts with the first
+  // block
+  private final ExecutorService sealer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "object-store-sealer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Open the persistent history and the latest value log, if configured, and reload what they
+   * hold.
+   */
+  @PostConstruct
+  public void initialize() {
+    metrics.setEnabled(metricsEnabled);
+    // open the log first so that every entry created while recovering logs its later values
+    Collection<LoggedValue> logged = openLog();
+    openPersistence();
+    for (LoggedValue value : logged) {
+      getDeviceEntry(value.getDeviceId()).restore(symbols.intern(value.getObjectName()), value);
+    }
+  }
+
+  private void openPersistence() {
+    if (persistPath == null || persistPath.isEmpty()) {
+      return;
+    }
+
+    try {
+      persistence = new MappedHistoryStore(persistPath, cacheSize, persistValueSize);
+      List<RecoveredHistory> histories = persistence.recover();
+      for (RecoveredHistory history : histories) {
+        getDeviceEntry(history.getDeviceId())
+            .restore(symbols.intern(history.getObjectName()), history);
+      }
+      logger.info("Recovered " + histories.size() + " object histories from " + persistPath);
+    } catch (IOException e) {
+      logger.error("Could not open the persistent object history at " + persistPath
+          + ", histories will not be persisted: " + e.getMessage());
+      persistence = null;
+    }
+  }
+
+  /**
+   * @return the latest values read back from the log, to be restored once the persistent history
+   *         has been
+   */
+  private Collection<LoggedValue> openLog() {
+    if (logPath == null || logPath.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    try {
+      long started = System.currentTimeMillis();
+      LatestValueLog opened = new LatestValueLog(logPath, logCompactInterval);
+      Collection<LoggedValue> values = opened.open();
+      valueLog = opened;
+      logger.info("Recovered " + values.size() + " latest values from " + logPath + " in "
+          + (System.currentTimeMillis() - started) + " ms");
+      return values;
+    } catch (IOException e) {
+      logger.error("Could not open the latest value log at " + logPath
+          + ", latest values will not be logged: " + e.getMessage());
+      return Collections.emptyList();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    dispatcher.shutdown();
+    sealer.shutdownNow();
+    if (persistence != null) {
+      persistence.flush();
+    }
+    if (valueLog != null) {
+      valueLog.close();
+    }
+  }
 
   /**
    * The value could be transformed or not depending on caller
@@ -59,123 +251,522 @@ public class ObjectStoreImpl implements ObjectStore {
    */
   @Override
   public void put(Device device, ResourceOperation operation, String value) {
-    if (value == null || value.equals("") || value.equals("{}")) {
+    long started = metrics.start();
+    store(device, operation, value);
+    metrics.recordPut(started);
+  }
+
+  private void store(Device device, ResourceOperation operation, String value) {
+    if (isEmptyValue(value)) {
       return;
     }
 
-    List<ServiceObject> objectsList = createObjectsList(operation, device);
-    String deviceId = device.getId();
-    List<Reading> readings = new ArrayList<>();
+    OperationPlan plan = getOperationPlan(device, operation);
+    if (plan.isEmpty()) {
+      return;
+    }
 
-    for (ServiceObject obj : objectsList) {
-      String objectName = obj.getName();
+    long timestamp = System.currentTimeMillis();
+    List<Reading> readings = buildReadings(plan, value, device.getName(), timestamp);
 
-      Reading reading = buildReading(objectName, value, device.getName());
-      readings.add(reading);
+    List<Reading> stored;
+    do {
+      DeviceEntry entry = getDeviceEntry(device.getId(), plan.getDeviceSlot());
+      stored = entry.put(plan, value, timestamp, readings);
+      if (stored == null) {
+        // the entry was evicted under us, retry against a fresh entry
+        forgetSlot(entry);
+      }
+    } while (stored == null);
+    evictIfOverBudget();
 
-      synchronized (objectCache) {
-        if (objectCache.get(deviceId) == null) {
-          objectCache.put(deviceId, new HashMap<String, List<String>>());
-        }
+    if (!stored.isEmpty() && dispatcher.hasSubscriptions()) {
+      dispatcher.publish(device, Collections.unmodifiableList(stored));
+    }
+  }
 
-        if (objectCache.get(deviceId).get(objectName) == null) {
-          objectCache.get(deviceId).put(objectName, new ArrayList<String>());
-        }
+  @Override
+  public List<Reading> putAll(Device device, Map<ResourceOperation, String> values) {
+    long started = metrics.start();
+    List<Reading> stored = storeAll(device, values);
+    metrics.recordPut(started);
+    return stored;
+  }
 
-        objectCache.get(deviceId).get(objectName).add(0, value);
+  private List<Reading> storeAll(Device device, Map<ResourceOperation, String> values) {
+    List<OperationPlan> plans = new ArrayList<>(values.size());
+    List<String> planValues = new ArrayList<>(values.size());
+    List<List<Reading>> planReadings = new ArrayList<>(values.size());
+    long timestamp = System.currentTimeMillis();
 
-        if (objectCache.get(deviceId).get(objectName).size() == cacheSize) {
-          objectCache.get(deviceId).get(objectName).remove(cacheSize - 1);
-        }
+    for (Map.Entry<ResourceOperation, String> value : values.entrySet()) {
+      if (isEmptyValue(value.getValue())) {
+        continue;
+      }
+
+      OperationPlan plan = getOperationPlan(device, value.getKey());
+      if (plan.isEmpty()) {
+        continue;
       }
+
+      List<Reading> operationReadings =
+          buildReadings(plan, value.getValue(), device.getName(), timestamp);
+      plans.add(plan);
+      planValues.add(value.getValue());
+      planReadings.add(operationReadings);
     }
 
-    String operationId =
-        objectsList.stream().map(o -> o.getName()).collect(Collectors.toList()).toString();
+    if (plans.isEmpty()) {
+      return Collections.emptyList();
+    }
 
-    synchronized (responseCache) {
-      if (responseCache.get(deviceId) == null) {
-        responseCache.put(deviceId, new HashMap<String, List<Reading>>());
+    List<Reading> stored;
+    do {
+      DeviceEntry entry = getDeviceEntry(device.getId(), plans.get(0).getDeviceSlot());
+      stored = entry.putAll(plans, planValues, timestamp, planReadings);
+      if (stored == null) {
+        forgetSlot(entry);
       }
+    } while (stored == null);
+    evictIfOverBudget();
 
-      responseCache.get(deviceId).put(operationId, readings);
+    List<Reading> result = Collections.unmodifiableList(stored);
+    if (!result.isEmpty() && dispatcher.hasSubscriptions()) {
+      dispatcher.publish(device, result);
     }
+
+    return result;
   }
 
   @Override
   public String get(String deviceId, String object) {
-    return get(deviceId, object, 1).get(0);
+    long started = metrics.start();
+    String value = getSnapshot(deviceId).getValue(symbols.lookup(object));
+    metrics.recordGet(started);
+    return value;
+  }
+
+  @Override
+  public List<String> get(String deviceId, String object, int count) {
+    long started = metrics.start();
+    HistoryBuffer history = getHistory(deviceId, object);
+    List<String> values = history == null ? new ArrayList<>() : history.latest(count);
+    metrics.recordGet(started);
+    return values;
   }
 
   @Override
   public JsonObject get(Device device, ResourceOperation operation) {
+    long started = metrics.start();
     JsonObject jsonObject = new JsonObject();
-    List<ServiceObject> objectsList = createObjectsList(operation, device);
+    OperationPlan plan = getOperationPlan(device, operation);
+    DeviceSnapshot snapshot = getSnapshot(device.getId());
 
-    for (ServiceObject obj : objectsList) {
-      String objectName = obj.getName();
-      jsonObject.addProperty(objectName, get(device.getId(), objectName));
+    for (int i = 0; i < plan.getObjectNames().size(); i++) {
+      jsonObject.addProperty(plan.getObjectNames().get(i),
+          snapshot.getValue(plan.getObjectSymbol(i)));
     }
 
+    metrics.recordGet(started);
     return jsonObject;
   }
 
   @Override
-  public List<Reading> getResponses(Device device, ResourceOperation operation) {
-    String deviceId = device.getId();
-    List<ServiceObject> objectsList = createObjectsList(operation, device);
+  public void get(Device device, ResourceOperation operation, Appendable out)
+      throws IOException {
+    stream(device, operation, JsonStreamer.to(out));
+  }
 
-    String operationId =
-        objectsList.stream().map(o -> o.getName()).collect(Collectors.toList()).toString();
+  @Override
+  public void get(Device device, ResourceOperation operation, OutputStream out)
+      throws IOException {
+    stream(device, operation, JsonStreamer.to(out));
+  }
 
-    if (responseCache.get(deviceId) == null
-        || responseCache.get(deviceId).get(operationId) == null) {
-      return new ArrayList<>();
+  @Override
+  public void get(Device device, ResourceOperation operation, ByteBuffer out) {
+    try {
+      stream(device, operation, JsonStreamer.to(out));
+    } catch (IOException e) {
+      // buffers do not throw IOException
+      throw new IllegalStateException(e);
     }
+  }
+
+  private void stream(Device device, ResourceOperation operation, JsonStreamer json)
+      throws IOException {
+    long started = metrics.start();
+    OperationPlan plan = getOperationPlan(device, operation);
+    DeviceSnapshot snapshot = getSnapshot(device.getId());
 
-    return responseCache.get(deviceId).get(operationId);
+    json.begin();
+    for (int i = 0; i < plan.getObjectNames().size(); i++) {
+      json.property(plan.getObjectNames().get(i), snapshot.getValue(plan.getObjectSymbol(i)));
+    }
+    json.end();
+    metrics.recordGet(started);
   }
 
-  private List<ServiceObject> createObjectsList(ResourceOperation operation, Device device) {
-    Map<String, ServiceObject> objects = profileStore.getObjects().get(device.getName());
-    List<ServiceObject> objectsList = new ArrayList<>();
+  @Override
+  public List<Reading> getResponses(Device device, ResourceOperation operation) {
+    long started = metrics.start();
+    int operationSymbol = getOperationPlan(device, operation).getOperationSymbol();
+    List<Reading> readings = getSnapshot(device.getId()).getResponses(operationSymbol);
+    metrics.recordResponse(readings != null);
+    metrics.recordGet(started);
 
-    if (operation != null && objects != null) {
-      ServiceObject object = objects.get(operation.getObject());
+    if (readings == null) {
+      return new ArrayList<>();
+    }
 
-      if (profileStore.descriptorExists(operation.getParameter())) {
-        object.setName(operation.getParameter());
-        objectsList.add(object);
-      } else if (profileStore.descriptorExists(object.getName())) {
-        objectsList.add(object);
-      }
+    return readings;
+  }
 
-      if (operation.getSecondary() != null) {
-        for (String secondary : operation.getSecondary()) {
-          if (profileStore.descriptorExists(secondary)) {
-            objectsList.add((ServiceObject) objects.get(secondary));
-          }
-        }
+  @Override
+  public LatestValues getLatest(String profileName, String object) {
+    long started = metrics.start();
+    List<Device> devices = profileStore.getDevices(profileName);
+    int objectSymbol = symbols.lookup(object);
+    String[][] values = new String[devices.size()][];
+
+    forEachDevice(devices, i -> {
+      DeviceEntry entry = deviceCache.get(devices.get(i).getId());
+      values[i] = new String[] {
+          entry == null || objectSymbol < 0 ? null : entry.getSnapshot().getValue(objectSymbol)};
+    });
+
+    LatestValues latest =
+        new LatestValues(Collections.singletonList(object), deviceNames(devices), values);
+    metrics.recordGet(started);
+    return latest;
+  }
+
+  @Override
+  public LatestValues getLatest(String profileName, ResourceOperation operation) {
+    long started = metrics.start();
+    List<Device> devices = profileStore.getDevices(profileName);
+    List<String> objects = devices.isEmpty() ? Collections.emptyList()
+        : getOperationPlan(devices.get(0), operation).getObjectNames();
+    String[][] values = new String[devices.size()][];
+
+    forEachDevice(devices, i -> {
+      Device device = devices.get(i);
+      OperationPlan plan = getOperationPlan(device, operation);
+      DeviceEntry entry = deviceCache.get(device.getId());
+      DeviceSnapshot snapshot = entry == null ? DeviceSnapshot.EMPTY : entry.getSnapshot();
+      String[] row = new String[objects.size()];
+      for (int j = 0; j < row.length && j < plan.getObjectNames().size(); j++) {
+        row[j] = snapshot.getValue(plan.getObjectSymbol(j));
       }
+      values[i] = row;
+    });
+
+    LatestValues latest = new LatestValues(objects, deviceNames(devices), values);
+    metrics.recordGet(started);
+    return latest;
+  }
+
+  private void forEachDevice(List<Device> devices, IntConsumer action) {
+    IntStream indexes = IntStream.range(0, devices.size());
+    if (devices.size() > parallelThreshold) {
+      indexes = indexes.parallel();
     }
+    indexes.forEach(action);
+  }
 
-    return objectsList;
+  private static List<String> deviceNames(List<Device> devices) {
+    List<String> names = new ArrayList<>(devices.size());
+    for (Device device : devices) {
+      names.add(device.getName());
+    }
+    return Collections.unmodifiableList(names);
   }
 
-  private List<String> get(String deviceId, String object, int i) {
-    if (objectCache.get(deviceId) == null || objectCache.get(deviceId).get(object) == null
-        || objectCache.get(deviceId).get(object).size() < i) {
+  @Override
+  public List<Reading> getReadings(Device device, String object, long start, long end) {
+    DeviceEntry entry = deviceCache.get(device.getId());
+    int objectSymbol = symbols.lookup(object);
+    if (entry == null || objectSymbol < 0) {
       return new ArrayList<>();
     }
+    entry.touch();
+
+    HistoryBuffer history = entry.getHistory(objectSymbol);
+    HistoryArchive archive = entry.getArchive(objectSymbol);
+    List<Reading> readings = new ArrayList<>();
+
+    if (archive != null) {
+      // archived values the history still holds are read from the history
+      long before = history == null ? Long.MAX_VALUE : history.firstPosition();
+      archive.range(start, end, before, device.getName(), object, readings);
+    }
 
-    return objectCache.get(deviceId).get(object).subList(0, i);
+    if (history != null) {
+      readings.addAll(history.range(start, end, device.getName(), object));
+    }
+
+    return readings;
+  }
+
+  @Override
+  public List<Reading> getReadings(Device device, ResourceOperation operation, long start,
+      long end) {
+    List<Reading> readings = new ArrayList<>();
+
+    for (String objectName : getOperationPlan(device, operation).getObjectNames()) {
+      readings.addAll(getReadings(device, objectName, start, end));
+    }
+
+    return readings;
+  }
+
+  @Override
+  public Rollup getRollup(Device device, String object, long duration) {
+    RollupBuffer rollup = getRollup(device.getId(), object);
+    if (rollup == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    return rollup.aggregate(now - duration, now + 1);
   }
 
-  private Reading buildReading(String key, String value, String deviceName) {
+  @Override
+  public List<Rollup> getRollups(Device device, String object, int count) {
+    RollupBuffer rollup = getRollup(device.getId(), object);
+    return rollup == null ? new ArrayList<>() : rollup.windows(count);
+  }
+
+  @Override
+  public void remove(String deviceId) {
+    DeviceEntry entry = deviceCache.remove(deviceId);
+    if (entry != null) {
+      evictionPolicy.remove(entry);
+      entry.release();
+      forgetSlot(entry);
+    }
+    if (persistence != null) {
+      persistence.releaseDetached(deviceId);
+    }
+    if (valueLog != null) {
+      valueLog.remove(deviceId);
+    }
+  }
+
+  @Override
+  public Subscription subscribe(ObjectStoreListener listener, SubscriptionFilter filter) {
+    return dispatcher.subscribe(listener, filter, subscriptionQueue);
+  }
+
+  private boolean isEmptyValue(String value) {
+    return value == null || value.equals("") || value.equals("{}");
+  }
+
+  private List<Reading> buildReadings(OperationPlan plan, String value, String deviceName,
+      long timestamp) {
+    List<String> objectNames = plan.getObjectNames();
+    List<Reading> readings = new ArrayList<>(objectNames.size());
+
+    for (String objectName : objectNames) {
+      readings.add(buildReading(objectName, value, deviceName, timestamp));
+    }
+
+    return readings;
+  }
+
+  static Reading buildReading(String key, String value, String deviceName, long origin) {
     Reading reading = new Reading();
     reading.setName(key);
     reading.setValue(value);
     reading.setDevice(deviceName);
+    reading.setOrigin(origin);
     return reading;
   }
+
+  StoreMetrics getStoreMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return estimated heap bytes held by all device entries
+   */
+  long getUsage() {
+    return usage.get();
+  }
+
+  int getDeviceCount() {
+    return deviceCache.size();
+  }
+
+  List<DeviceUsage> getDeviceUsage() {
+    List<DeviceUsage> devices = new ArrayList<>(deviceCache.size());
+    for (DeviceEntry entry : deviceCache.values()) {
+      devices.add(new DeviceUsage(entry.getDeviceId(), entry.getObjectCount(),
+          entry.getSnapshot().getResponseCount(), entry.footprint()));
+    }
+    return devices;
+  }
+
+  private OperationPlan getOperationPlan(Device device, ResourceOperation operation) {
+    OperationPlan plan = profileStore.getOperationPlan(device, operation);
+    if (plan == null || plan.isEmpty()) {
+      return OperationPlan.EMPTY;
+    }
+    if (plan.isBound()) {
+      return plan;
+    }
+    return boundPlans.computeIfAbsent(plan, symbols::bind);
+  }
+
+  /**
+   * Find the device's entry through its slot, an array index, falling back to the device map for
+   * devices without a slot or whose slot does not hold their entry yet.
+   */
+  private DeviceEntry getDeviceEntry(String deviceId, int deviceSlot) {
+    if (deviceSlot < 0) {
+      return getDeviceEntry(deviceId);
+    }
+
+    AtomicReferenceArray<DeviceEntry> entries = slotEntries;
+    if (deviceSlot < entries.length()) {
+      DeviceEntry entry = entries.get(deviceSlot);
+      // a slot may have been handed to another device since it was cached
+      if (entry != null && entry.getDeviceId().equals(deviceId)) {
+        entry.touch();
+        return entry;
+      }
+    }
+
+    DeviceEntry entry = getDeviceEntry(deviceId);
+    cacheSlot(deviceSlot, entry);
+    return entry;
+  }
+
+  private void cacheSlot(int deviceSlot, DeviceEntry entry) {
+    AtomicReferenceArray<DeviceEntry> entries = slotEntries;
+    if (deviceSlot >= entries.length()) {
+      entries = growSlots(deviceSlot);
+    }
+    entry.setSlot(deviceSlot);
+    entries.set(deviceSlot, entry);
+  }
+
+  private synchronized AtomicReferenceArray<DeviceEntry> growSlots(int deviceSlot) {
+    AtomicReferenceArray<DeviceEntry> entries = slotEntries;
+    if (deviceSlot < entries.length()) {
+      return entries;
+    }
+    // an entry cached in the old array while copying is only lost from the cache, the next put
+    // for its device finds it through the map again
+    AtomicReferenceArray<DeviceEntry> grown =
+        new AtomicReferenceArray<>(Math.max(entries.length() * 2, deviceSlot + 1));
+    for (int i = 0; i < entries.length(); i++) {
+      grown.set(i, entries.get(i));
+    }
+    slotEntries = grown;
+    return grown;
+  }
+
+  /**
+   * Drop a released entry from its slot so that puts find the device's new entry.
+   */
+  private void forgetSlot(DeviceEntry entry) {
+    int deviceSlot = entry.getSlot();
+    AtomicReferenceArray<DeviceEntry> entries = slotEntries;
+    if (deviceSlot >= 0 && deviceSlot < entries.length()) {
+      entries.compareAndSet(deviceSlot, entry, null);
+    }
+  }
+
+  private DeviceEntry getDeviceEntry(String deviceId) {
+    DeviceEntry entry = deviceCache.get(deviceId);
+
+    if (entry == null) {
+      DeviceEntry created = new DeviceEntry(deviceId, new EntrySettings(cacheSize, typed,
+          persistence, valueLog, getDeadbands(), rollupWidth, rollupWindows, archiveBlocks, sealer,
+          metrics), usage);
+      // writers wait for the histories of a device evicted earlier to be reloaded
+      synchronized (created) {
+        entry = deviceCache.putIfAbsent(deviceId, created);
+        if (entry == null && persistence != null) {
+          for (RecoveredHistory history : persistence.reattach(deviceId)) {
+            created.restore(symbols.intern(history.getObjectName()), history);
+          }
+        }
+      }
+      if (entry == null) {
+        // a new device is on probation until it is used again
+        evictionPolicy.admit(created);
+        return created;
+      }
+    }
+
+    entry.touch();
+    return entry;
+  }
+
+  /**
+   * Evict the coldest devices until the cache is back within its budget. Only one writer evicts at
+   * a time, others carry on and leave it to the one evicting.
+   */
+  private void evictIfOverBudget() {
+    if (cacheBudget <= 0 || usage.get() <= cacheBudget || !evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      long excess = usage.get() - cacheBudget;
+      if (excess <= 0) {
+        return;
+      }
+
+      List<DeviceEntry> victims = evictionPolicy.evict(excess);
+      for (DeviceEntry victim : victims) {
+        deviceCache.remove(victim.getDeviceId(), victim);
+        victim.evict();
+        forgetSlot(victim);
+      }
+
+      if (!victims.isEmpty()) {
+        logger.debug("Evicted " + victims.size() + " cold devices from the object cache");
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private Map<String, Deadband> getDeadbands() {
+    if (deadbandConfiguration == null) {
+      return Collections.emptyMap();
+    }
+    return deadbandConfiguration.getDeadbands();
+  }
+
+  private DeviceSnapshot getSnapshot(String deviceId) {
+    DeviceEntry entry = deviceCache.get(deviceId);
+    if (entry == null) {
+      return DeviceSnapshot.EMPTY;
+    }
+    entry.touch();
+    return entry.getSnapshot();
+  }
+
+  private RollupBuffer getRollup(String deviceId, String object) {
+    DeviceEntry entry = deviceCache.get(deviceId);
+    int objectSymbol = symbols.lookup(object);
+    if (entry == null || objectSymbol < 0) {
+      return null;
+    }
+    entry.touch();
+    return entry.getRollup(objectSymbol);
+  }
+
+  private HistoryBuffer getHistory(String deviceId, String object) {
+    DeviceEntry entry = deviceCache.get(deviceId);
+    int objectSymbol = symbols.lookup(object);
+    if (entry == null || objectSymbol < 0) {
+      return null;
+    }
+    entry.touch();
+    return entry.getHistory(objectSymbol);
+  }
 }
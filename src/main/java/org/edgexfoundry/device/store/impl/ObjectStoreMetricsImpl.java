@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.edgexfoundry.device.domain.DeviceUsage;
+import org.edgexfoundry.device.domain.LatencySummary;
+import org.edgexfoundry.device.store.ObjectStoreMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read side of the metrics the object store records on its hot paths.
+ *
+ * @author Jim White
+ *
+ */
+@Component
+public class ObjectStoreMetricsImpl implements ObjectStoreMetrics {
+
+  @Autowired
+  private ObjectStoreImpl objectStore;
+
+  @Override
+  public LatencySummary getPutLatency() {
+    return objectStore.getStoreMetrics().getPuts().summarize();
+  }
+
+  @Override
+  public LatencySummary getGetLatency() {
+    return objectStore.getStoreMetrics().getGets().summarize();
+  }
+
+  @Override
+  public LatencySummary getLockWait() {
+    return objectStore.getStoreMetrics().getLockWaits().summarize();
+  }
+
+  @Override
+  public long getResponseHits() {
+    return objectStore.getStoreMetrics().getResponseHits();
+  }
+
+  @Override
+  public long getResponseMisses() {
+    return objectStore.getStoreMetrics().getResponseMisses();
+  }
+
+  @Override
+  public long getCacheBytes() {
+    return objectStore.getUsage();
+  }
+
+  @Override
+  public List<DeviceUsage> getDeviceUsage() {
+    return objectStore.getDeviceUsage();
+  }
+
+  @Override
+  public Map<String, Number> getMetrics() {
+    Map<String, Number> metrics = new LinkedHashMap<>();
+    addLatency(metrics, "objectstore.put", getPutLatency());
+    addLatency(metrics, "objectstore.get", getGetLatency());
+    addLatency(metrics, "objectstore.lock.wait", getLockWait());
+    metrics.put("objectstore.responses.hits", getResponseHits());
+    metrics.put("objectstore.responses.misses", getResponseMisses());
+    metrics.put("objectstore.cache.bytes", getCacheBytes());
+    metrics.put("objectstore.cache.devices", objectStore.getDeviceCount());
+    return metrics;
+  }
+
+  private static void addLatency(Map<String, Number> metrics, String prefix,
+      LatencySummary latency) {
+    metrics.put(prefix + ".count", latency.getCount());
+    metrics.put(prefix + ".rate", latency.getRate());
+    metrics.put(prefix + ".mean", latency.getMean());
+    metrics.put(prefix + ".p50", latency.getP50());
+    metrics.put(prefix + ".p90", latency.getP90());
+    metrics.put(prefix + ".p99", latency.getP99());
+    metrics.put(prefix + ".p999", latency.getP999());
+    metrics.put(prefix + ".max", latency.getMax());
+  }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.edgexfoundry.domain.meta.ResourceOperation;
+
+/**
+ * Cache key for the parts of a resource operation that determine its operation plan. Resource
+ * operations are not guaranteed to implement equals, and callers often build new instances for the
+ * same operation, so the key compares the fields instead of the operation itself.
+ *
+ * @author Jim White
+ *
+ */
+final class OperationKey {
+
+  private final String object;
+
+  private final String parameter;
+
+  private final List<String> secondary;
+
+  private final int hash;
+
+  OperationKey(ResourceOperation operation) {
+    this.object = operation.getObject();
+    this.parameter = operation.getParameter();
+    this.secondary =
+        operation.getSecondary() == null ? null : new ArrayList<>(operation.getSecondary());
+    this.hash = Objects.hash(object, parameter, secondary);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof OperationKey)) {
+      return false;
+    }
+    OperationKey key = (OperationKey) other;
+    return hash == key.hash && Objects.equals(object, key.object)
+        && Objects.equals(parameter, key.parameter) && Objects.equals(secondary, key.secondary);
+  }
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.edgexfoundry.controller.DeviceProfileClient;
+import org.edgexfoundry.domain.meta.DeviceProfile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Device profiles fetched from metadata by name, shared by the stores. Callers asking for the
+ * same profile while it is being fetched wait for that one fetch instead of starting their own.
+ * A fetched profile is kept for data.profiles.ttl milliseconds (0 to keep it only while the fetch
+ * is in flight), or until it is invalidated because the profile changed. Failed fetches are not
+ * kept; their exception is thrown to every caller that waited on them.
+ * 
+ * Profiles are shared between callers and must not be changed by them.
+ * 
+ * @author Jim White
+ *
+ */
+@Component
+public class ProfileCache {
+
+  @Autowired
+  private DeviceProfileClient deviceProfileClient;
+
+  // milliseconds a fetched profile is kept
+  @Value("${data.profiles.ttl:60000}")
+  private long ttl;
+
+  private final Map<String, Fetch> fetches = new ConcurrentHashMap<>();
+
+  /**
+   * @return the named profile, fetched from metadata unless a fresh copy is cached
+   * @throws RuntimeException whatever the client threw for the fetch, such as a
+   *         javax.ws.rs.NotFoundException for an unknown profile
+   */
+  public DeviceProfile get(String name) {
+    if (name == null) {
+      return deviceProfileClient.deviceProfileForName(name);
+    }
+
+    long now = System.currentTimeMillis();
+    Fetch started = new Fetch();
+    Fetch fetch = fetches.compute(name,
+        (key, current) -> current == null || current.isExpired(now, ttl) ? started : current);
+
+    if (fetch == started) {
+      try {
+        started.complete(deviceProfileClient.deviceProfileForName(name));
+      } catch (RuntimeException | Error e) {
+        fetches.remove(name, started);
+        started.fail(e);
+        throw e;
+      }
+    }
+    return fetch.join();
+  }
+
+  /**
+   * Forget the named profile, so that it is fetched again on next use. A fetch already in flight
+   * is still delivered to its waiting callers.
+   */
+  public void invalidate(String name) {
+    if (name != null) {
+      fetches.remove(name);
+    }
+  }
+
+  /**
+   * Forget the profile with the id, as when metadata reports the profile was updated. Only fetched
+   * profiles carry their id, so a fetch in flight is left to its waiting callers.
+   */
+  public void invalidateById(String profileId) {
+    if (profileId != null) {
+      fetches.values().removeIf(fetch -> profileId.equals(fetch.getProfileId()));
+    }
+  }
+
+  /**
+   * Forget every profile.
+   */
+  public void clear() {
+    fetches.clear();
+  }
+
+  private static class Fetch {
+
+    private final CompletableFuture<DeviceProfile> profile = new CompletableFuture<>();
+
+    private volatile long fetched;
+
+    void complete(DeviceProfile fetchedProfile) {
+      fetched = System.currentTimeMillis();
+      profile.complete(fetchedProfile);
+    }
+
+    void fail(Throwable e) {
+      profile.completeExceptionally(e);
+    }
+
+    boolean isExpired(long now, long ttl) {
+      // a fetch in flight never expires, later callers wait for it
+      return profile.isDone() && (profile.isCompletedExceptionally() || now - fetched >= ttl);
+    }
+
+    String getProfileId() {
+      DeviceProfile done = profile.isDone() && !profile.isCompletedExceptionally()
+          ? profile.getNow(null) : null;
+      return done == null ? null : done.getId();
+    }
+
+    DeviceProfile join() {
+      try {
+        return profile.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+}
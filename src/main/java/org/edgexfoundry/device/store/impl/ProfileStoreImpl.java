@@ -19,13 +19,20 @@
 package org.edgexfoundry.device.store.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import org.edgexfoundry.controller.DeviceProfileClient;
-import org.edgexfoundry.controller.ValueDescriptorClient;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.edgexfoundry.device.domain.CommandIndex;
+import org.edgexfoundry.device.domain.CommandTable;
+import org.edgexfoundry.device.domain.OperationPlan;
 import org.edgexfoundry.device.domain.ServiceObject;
 import org.edgexfoundry.device.domain.ServiceObjectFactory;
 import org.edgexfoundry.device.store.ProfileStore;
@@ -57,30 +64,93 @@ public class ProfileStoreImpl implements ProfileStore {
   private static final EdgeXLogger logger =
       EdgeXLoggerFactory.getEdgeXLogger(ProfileStoreImpl.class);
 
+  // profiles fetched from metadata, shared with the watcher store
   @Autowired
-  private ValueDescriptorClient valueDescriptorClient;
-
-  @Autowired
-  private DeviceProfileClient deviceProfileClient;
+  private ProfileCache profileCache;
   
   @Autowired
   private ServiceObjectFactory serviceObjectFactory;
 
-  private List<ValueDescriptor> valueDescriptors = new ArrayList<>();
+  // value descriptors in metadata, created there when a profile's operations need new ones
+  @Autowired
+  private DescriptorSynchronizer descriptorSynchronizer;
+
+  // canonical names shared by every device's maps and the object store
+  @Autowired
+  private SymbolTable symbols;
+
+  // dense slot of each added device, bound into its operation plans
+  @Autowired
+  private DeviceSlots deviceSlots;
+
+  // value descriptors used by the devices' operations, keyed by descriptor name
+  private Map<String, ValueDescriptor> valueDescriptors = new ConcurrentHashMap<>();
 
   // TODO - jpw - wow, make these simpler, separate objects
   // map (key of device name) to cache of each device's resources keyed by resource name
   // mapped to resource operations arrays keyed by get or put operation
-  private Map<String, Map<String, Map<String, List<ResourceOperation>>>> commands = new HashMap<>();
+  private Map<String, Map<String, Map<String, List<ResourceOperation>>>> commands =
+      new ConcurrentHashMap<>();
+
+  // compiled command table of each device, keyed by device name
+  private Map<String, CommandTable> commandTables = new ConcurrentHashMap<>();
+
+  // count of changes to the command tables, the index is compiled again when it has moved on
+  private final AtomicInteger commandChanges = new AtomicInteger();
+
+  private volatile CompiledIndex commandIndex = new CompiledIndex(CommandIndex.EMPTY, 0);
 
   // map (key of device name) to cache each device's profile objects by profile object key
-  private Map<String, Map<String, ServiceObject>> objects = new HashMap<>();
+  private Map<String, Map<String, ServiceObject>> objects = new ConcurrentHashMap<>();
+
+  // command and object tables compiled once per profile version and shared by the devices using
+  // it, keyed by profile name and modified time; dropped when the last such device is removed
+  private Map<String, SharedTables> profileTables = new ConcurrentHashMap<>();
+
+  // key of the shared tables each device was added with, keyed by device name
+  private Map<String, String> deviceTables = new ConcurrentHashMap<>();
+
+  // map (key of device name) to the operation plans resolved against the device's current objects;
+  // replaced whenever the device is added so stale plans are never served
+  private Map<String, Map<OperationKey, OperationPlan>> plans = new ConcurrentHashMap<>();
+
+  // index of the devices using each profile, keyed by profile name and then device name
+  private Map<String, Map<String, Device>> profileDevices = new ConcurrentHashMap<>();
+
+  // profile each indexed device was added with, keyed by device name
+  private Map<String, String> deviceProfiles = new ConcurrentHashMap<>();
 
   @Override
   public Map<String, Map<String, Map<String, List<ResourceOperation>>>> getCommands() {
     return commands;
   }
 
+  @Override
+  public CommandIndex getCommandIndex() {
+    CompiledIndex compiled = commandIndex;
+    if (compiled.changes != commandChanges.get()) {
+      synchronized (commandTables) {
+        compiled = commandIndex;
+        int changes = commandChanges.get();
+        if (compiled.changes != changes) {
+          compiled = new CompiledIndex(new CommandIndex(new HashMap<>(commandTables)), changes);
+          commandIndex = compiled;
+        }
+      }
+    }
+    return compiled.index;
+  }
+
+  private void setCommandTable(String deviceName, CommandTable table) {
+    if (table == null) {
+      commandTables.remove(deviceName);
+    } else {
+      commandTables.put(deviceName, table);
+    }
+    // counted after the change, so an index compiled before it is seen to be stale
+    commandChanges.incrementAndGet();
+  }
+
   @Override
   public Map<String, Map<String, ServiceObject>> getObjects() {
     return objects;
@@ -88,32 +158,33 @@ public class ProfileStoreImpl implements ProfileStore {
 
   @Override
   public List<ValueDescriptor> getValueDescriptors() {
-    return valueDescriptors;
+    return new ArrayList<>(valueDescriptors.values());
   }
 
   @Override
   public boolean descriptorExists(String name) {
-    return !getValueDescriptors().stream().filter(desc -> desc.getName().equals(name))
-        .collect(Collectors.toList()).isEmpty();
+    return name != null && valueDescriptors.containsKey(name);
+  }
+
+  @Override
+  public ValueDescriptor getValueDescriptor(String name) {
+    return name == null ? null : valueDescriptors.get(name);
   }
 
   @Override
   public void addDevice(Device device) {
     if (completeProfile(device)) {
-      List<ValueDescriptor> descriptors = retrieveAllValueDescriptors();
-      List<String> usedDescriptors = retrieveUsedDescriptors(device);
-
-      Map<String, Map<String, List<ResourceOperation>>> deviceOperations = new HashMap<>();
-      List<ResourceOperation> ops = new ArrayList<>();
-      retreiveOperations(device, deviceOperations, ops);
-
-      Map<String, ServiceObject> deviceObjects = new HashMap<>();
-      buildDeviceObjectsMap(device, deviceObjects, deviceOperations, ops);
-
-      objects.put(device.getName(), deviceObjects);
-      commands.put(device.getName(), deviceOperations);
-
-      collectValueDescriptors(device, ops, descriptors, usedDescriptors);
+      String deviceName = symbols.canonical(device.getName());
+      ProfileTables tables = acquireTables(deviceName, device.getProfile());
+      objects.put(deviceName, tables.getObjects());
+      commands.put(deviceName, tables.getCommands());
+      setCommandTable(deviceName, tables.getCommandTable());
+
+      plans.put(deviceName, new ConcurrentHashMap<>());
+      indexDevice(deviceName, device);
+      if (device.getId() != null) {
+        deviceSlots.assign(device.getId());
+      }
     } else {
       logger.error(
           "Device is not associated to a profile and cannot therefore be added to the caches");
@@ -122,14 +193,305 @@ public class ProfileStoreImpl implements ProfileStore {
 
   @Override
   public void updateDevice(Device device) {
-    removeDevice(device);
+    // adding replaces the device's tables and plans in place, so its operations are never left
+    // without them while it is updated; only a device that lost its profile is removed
+    if (!completeProfile(device)) {
+      removeDevice(device);
+    }
     addDevice(device);
   }
 
   @Override
   public void removeDevice(Device device) {
+    plans.remove(device.getName());
     objects.remove(device.getName());
     commands.remove(device.getName());
+    setCommandTable(device.getName(), null);
+    releaseDeviceTables(device.getName());
+    unindexDevice(device.getName());
+    deviceSlots.release(device.getId());
+  }
+
+  @Override
+  public void overrideObject(Device device, ServiceObject object) {
+    String deviceName = device.getName();
+    Map<String, ServiceObject> deviceObjects = objects.get(deviceName);
+    if (deviceObjects == null) {
+      logger.error("Device " + deviceName + " is not cached, object " + object.getName()
+          + " cannot be overridden");
+      return;
+    }
+
+    // copy rather than change the tables shared with the other devices of the profile
+    Map<String, ServiceObject> overridden = new HashMap<>(deviceObjects);
+    overridden.put(symbols.canonical(object.getName()), object);
+    objects.put(deviceName, Collections.unmodifiableMap(overridden));
+    plans.put(deviceName, new ConcurrentHashMap<>());
+  }
+
+  @Override
+  public void overrideCommand(Device device, String resourceName,
+      Map<String, List<ResourceOperation>> operations) {
+    String deviceName = device.getName();
+    Map<String, Map<String, List<ResourceOperation>>> deviceOperations = commands.get(deviceName);
+    if (deviceOperations == null) {
+      logger.error("Device " + deviceName + " is not cached, command " + resourceName
+          + " cannot be overridden");
+      return;
+    }
+
+    Map<String, Map<String, List<ResourceOperation>>> overridden = new HashMap<>(deviceOperations);
+    overridden.put(symbols.canonical(resourceName.toLowerCase()),
+        Collections.unmodifiableMap(new HashMap<>(operations)));
+    commands.put(deviceName, Collections.unmodifiableMap(overridden));
+    setCommandTable(deviceName, new CommandTable(overridden));
+  }
+
+  @Override
+  public void synchronizeDescriptors(List<Device> devices) {
+    Map<String, ValueDescriptor> missing = new HashMap<>();
+    Set<String> profiles = new HashSet<>();
+    for (Device device : devices) {
+      if (completeProfile(device) && profiles.add(tablesKey(device.getProfile()))) {
+        List<ResourceOperation> ops = new ArrayList<>();
+        retreiveOperations(device.getProfile(), new HashMap<>(), ops);
+        collectMissingDescriptors(device.getProfile(), ops, missing);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      logger.info("Creating " + missing.size() + " value descriptors for " + devices.size()
+          + " devices");
+      descriptorSynchronizer.synchronize(missing.values());
+    }
+  }
+
+  @Override
+  public List<Device> getDevices(String profileName) {
+    Map<String, Device> devices = profileDevices.get(profileName);
+    return devices == null ? new ArrayList<>() : new ArrayList<>(devices.values());
+  }
+
+  private ProfileTables acquireTables(String deviceName, DeviceProfile profile) {
+    // a device re-added lets go of the tables it held only once it holds the new ones, so tables
+    // of an unchanged profile version are not dropped and compiled again
+    String previous = deviceTables.remove(deviceName);
+    try {
+      return shareTables(deviceName, profile);
+    } finally {
+      releaseTables(previous);
+    }
+  }
+
+  private ProfileTables shareTables(String deviceName, DeviceProfile profile) {
+    if (profile.getName() == null) {
+      return compileTables(profile);
+    }
+
+    // compiled at most once even when devices of a new profile are added concurrently; the first
+    // device compiles the tables outside of the map, the others wait for it
+    String key = tablesKey(profile);
+    SharedTables created = new SharedTables();
+    SharedTables shared = profileTables.compute(key,
+        (name, current) -> (current == null ? created : current).retain());
+    deviceTables.put(deviceName, key);
+
+    if (shared == created) {
+      try {
+        created.complete(compileTables(profile));
+      } catch (RuntimeException | Error e) {
+        // not kept, the next device added with the profile compiles it again
+        profileTables.remove(key, created);
+        deviceTables.remove(deviceName, key);
+        created.fail(e);
+        throw e;
+      }
+    }
+
+    try {
+      return shared.join();
+    } catch (RuntimeException | Error e) {
+      deviceTables.remove(deviceName, key);
+      throw e;
+    }
+  }
+
+  private void releaseDeviceTables(String deviceName) {
+    releaseTables(deviceTables.remove(deviceName));
+  }
+
+  private void releaseTables(String key) {
+    if (key != null) {
+      profileTables.computeIfPresent(key,
+          (name, tables) -> tables.release() == 0 ? null : tables);
+    }
+  }
+
+  private String tablesKey(DeviceProfile profile) {
+    return profile.getName() + "@" + profile.getModified();
+  }
+
+  private ProfileTables compileTables(DeviceProfile profile) {
+    Map<String, Map<String, List<ResourceOperation>>> profileOperations = new HashMap<>();
+    List<ResourceOperation> ops = new ArrayList<>();
+    retreiveOperations(profile, profileOperations, ops);
+
+    Map<String, ServiceObject> profileObjects = new HashMap<>();
+    buildProfileObjectsMap(profile, profileObjects, profileOperations, ops);
+
+    collectValueDescriptors(profile, ops);
+
+    return new ProfileTables(profileOperations, profileObjects);
+  }
+
+  private void indexDevice(String deviceName, Device device) {
+    String profileName = device.getProfile().getName();
+    String previous;
+    if (profileName == null) {
+      previous = deviceProfiles.remove(deviceName);
+    } else {
+      profileDevices.computeIfAbsent(profileName, name -> new ConcurrentHashMap<>())
+          .put(deviceName, device);
+      previous = deviceProfiles.put(deviceName, profileName);
+    }
+
+    // a device re-added with another profile leaves its previous one
+    if (previous != null && !previous.equals(profileName)) {
+      unindexDevice(previous, deviceName);
+    }
+  }
+
+  private void unindexDevice(String deviceName) {
+    String profileName = deviceProfiles.remove(deviceName);
+    if (profileName != null) {
+      unindexDevice(profileName, deviceName);
+    }
+  }
+
+  private void unindexDevice(String profileName, String deviceName) {
+    profileDevices.computeIfPresent(profileName, (name, devices) -> {
+      devices.remove(deviceName);
+      return devices.isEmpty() ? null : devices;
+    });
+  }
+
+  @Override
+  public OperationPlan getOperationPlan(Device device, ResourceOperation operation) {
+    if (operation == null) {
+      return OperationPlan.EMPTY;
+    }
+
+    Map<OperationKey, OperationPlan> devicePlans = plans.get(device.getName());
+
+    if (devicePlans == null) {
+      return createOperationPlan(device, operation);
+    }
+
+    OperationKey key = new OperationKey(operation);
+    OperationPlan plan = devicePlans.get(key);
+    if (plan == null) {
+      plan = createOperationPlan(device, operation);
+      // a plan missing descriptors not known yet is resolved again on next use
+      if (isComplete(device, operation)) {
+        OperationPlan cached = devicePlans.putIfAbsent(key, plan);
+        if (cached != null) {
+          plan = cached;
+        }
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * @return false if one of the operation's profile objects was left out of its plan only because
+   *         its value descriptor is not known yet; names that are not profile objects stay
+   *         unresolved and do not make the plan incomplete
+   */
+  private boolean isComplete(Device device, ResourceOperation operation) {
+    Map<String, ServiceObject> deviceObjects = objects.get(device.getName());
+    if (deviceObjects == null) {
+      return false;
+    }
+
+    ServiceObject object = deviceObjects.get(operation.getObject());
+    if (object != null && !descriptorExists(operation.getParameter())
+        && !descriptorExists(object.getName())) {
+      return false;
+    }
+
+    if (operation.getSecondary() != null) {
+      for (String secondary : operation.getSecondary()) {
+        if (deviceObjects.get(secondary) != null && !descriptorExists(secondary)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private OperationPlan createOperationPlan(Device device, ResourceOperation operation) {
+    Map<String, ServiceObject> deviceObjects = objects.get(device.getName());
+
+    if (deviceObjects == null) {
+      return OperationPlan.EMPTY;
+    }
+
+    List<ServiceObject> planObjects = new ArrayList<>();
+    List<String> objectNames = new ArrayList<>();
+    List<IoTType> valueTypes = new ArrayList<>();
+    ServiceObject object = deviceObjects.get(operation.getObject());
+
+    if (object != null) {
+      // values are reported under the parameter when it names a value descriptor
+      String name = null;
+      if (descriptorExists(operation.getParameter())) {
+        name = operation.getParameter();
+      } else if (descriptorExists(object.getName())) {
+        name = object.getName();
+      }
+
+      if (name != null) {
+        planObjects.add(object);
+        objectNames.add(symbols.canonical(name));
+        valueTypes.add(getValueType(name, object));
+      }
+    }
+
+    if (operation.getSecondary() != null) {
+      for (String secondary : operation.getSecondary()) {
+        ServiceObject secondaryObject = deviceObjects.get(secondary);
+        if (secondaryObject != null && descriptorExists(secondary)) {
+          planObjects.add(secondaryObject);
+          objectNames.add(symbols.canonical(secondary));
+          valueTypes.add(getValueType(secondary, secondaryObject));
+        }
+      }
+    }
+
+    return symbols.bind(new OperationPlan(planObjects, objectNames, valueTypes))
+        .forDevice(deviceSlots.lookup(device.getId()));
+  }
+
+  private IoTType getValueType(String descriptorName, ServiceObject object) {
+    ValueDescriptor descriptor = getValueDescriptor(descriptorName);
+
+    if (descriptor != null && descriptor.getType() != null) {
+      return descriptor.getType();
+    }
+
+    // fall back to the type the descriptor would have been created with
+    if (object.getProperties() != null && object.getProperties().getValue() != null) {
+      String type = object.getProperties().getValue().getType();
+      if (type != null && !type.isEmpty()) {
+        try {
+          return IoTType.valueOf(type.substring(0, 1));
+        } catch (IllegalArgumentException e) {
+          logger.debug("Unknown value type " + type + " for object " + object.getName());
+        }
+      }
+    }
+
+    return null;
   }
 
   private ValueDescriptor createDescriptor(String name, DeviceObject object) {
@@ -138,29 +500,13 @@ public class ProfileStoreImpl implements ProfileStore {
     ValueDescriptor descriptor = new ValueDescriptor(name, value.getMinimum(), value.getMaximum(),
         IoTType.valueOf(value.getType().substring(0, 1)), units.getDefaultValue(),
         value.getDefaultValue(), "%s", null, object.getDescription());
-    try {
-      descriptor.setId(valueDescriptorClient.add(descriptor));
-    } catch (Exception e) {
-      logger.error("Adding Value descriptor: " + descriptor.getName() + " failed with error "
-          + e.getMessage());
-    }
     return descriptor;
   }
 
-  private List<ValueDescriptor> retrieveAllValueDescriptors() {
-    List<ValueDescriptor> descriptors;
-    try {
-      descriptors = valueDescriptorClient.valueDescriptors();
-    } catch (Exception e) {
-      descriptors = new ArrayList<>();
-    }
-    return descriptors;
-  }
-
-  private List<String> retrieveUsedDescriptors(Device device) {
-    List<String> usedDescriptors = new ArrayList<>();
-    if (device.getProfile() != null && device.getProfile().getCommands() != null) {
-      for (Command command : device.getProfile().getCommands()) {
+  private Set<String> retrieveUsedDescriptors(DeviceProfile profile) {
+    Set<String> usedDescriptors = new HashSet<>();
+    if (profile.getCommands() != null) {
+      for (Command command : profile.getCommands()) {
         usedDescriptors.addAll(command.associatedValueDescriptors());
       }
     }
@@ -170,8 +516,7 @@ public class ProfileStoreImpl implements ProfileStore {
   private boolean completeProfile(Device device) {
     if (device.getProfile() != null) {
       if (device.getProfile().getDeviceResources() == null) {
-        DeviceProfile profile =
-            deviceProfileClient.deviceProfileForName(device.getProfile().getName());
+        DeviceProfile profile = profileCache.get(device.getProfile().getName());
         device.setProfile(profile);
       }
       return true;
@@ -179,15 +524,15 @@ public class ProfileStoreImpl implements ProfileStore {
     return false;
   }
 
-  private void retreiveOperations(Device device,
-      Map<String, Map<String, List<ResourceOperation>>> deviceOperations,
+  private void retreiveOperations(DeviceProfile profile,
+      Map<String, Map<String, List<ResourceOperation>>> profileOperations,
       List<ResourceOperation> ops) {
-    if (device.getProfile() != null && device.getProfile().getResources() != null) {
-      for (ProfileResource resource : device.getProfile().getResources()) {
+    if (profile.getResources() != null) {
+      for (ProfileResource resource : profile.getResources()) {
         Map<String, List<ResourceOperation>> operations = new HashMap<>();
         operations.put("get", resource.getGet());
         operations.put("set", resource.getSet());
-        deviceOperations.put(resource.getName().toLowerCase(), operations);
+        profileOperations.put(symbols.canonical(resource.getName().toLowerCase()), operations);
         if (resource.getGet() != null) {
           ops.addAll(resource.getGet());
         }
@@ -198,46 +543,59 @@ public class ProfileStoreImpl implements ProfileStore {
     }
   }
 
-  private void collectValueDescriptors(Device device, List<ResourceOperation> ops,
-      List<ValueDescriptor> descriptors, List<String> usedDescriptors) {
-    // Create a value descriptor for each parameter using its underlying object
+  private void collectValueDescriptors(DeviceProfile profile, List<ResourceOperation> ops) {
     for (ResourceOperation op : ops) {
-      ValueDescriptor descriptor = descriptors.stream()
-          .filter(d -> d.getName().equals(op.getParameter())).findAny().orElse(null);
-
-      if (descriptor == null) {
-        if (!usedDescriptors.contains(op.getParameter())) {
-          continue;
-        }
+      ValueDescriptor descriptor = descriptorSynchronizer.get(op.getParameter());
+      if (descriptor != null) {
+        valueDescriptors.putIfAbsent(descriptor.getName(), descriptor);
+      }
+    }
 
-        DeviceObject object = device.getProfile().getDeviceResources().stream()
-            .filter(obj -> obj.getName().equals(op.getObject())).findAny().orElse(null);
+    Map<String, ValueDescriptor> missing = new HashMap<>();
+    collectMissingDescriptors(profile, ops, missing);
+    if (!missing.isEmpty()) {
+      for (ValueDescriptor descriptor : descriptorSynchronizer.synchronize(missing.values())
+          .values()) {
+        valueDescriptors.putIfAbsent(descriptor.getName(), descriptor);
+      }
+    }
+  }
 
-        descriptor = createDescriptor(op.getParameter(), object);
+  private void collectMissingDescriptors(DeviceProfile profile, List<ResourceOperation> ops,
+      Map<String, ValueDescriptor> missing) {
+    Set<String> usedDescriptors = retrieveUsedDescriptors(profile);
+    // Create a value descriptor for each parameter using its underlying object
+    for (ResourceOperation op : ops) {
+      String name = op.getParameter();
+      if (!usedDescriptors.contains(name) || missing.containsKey(name)
+          || descriptorSynchronizer.get(name) != null) {
+        continue;
       }
 
-      if (!valueDescriptors.contains(descriptor))
-        valueDescriptors.add(descriptor);
-      descriptors.add(descriptor);
+      DeviceObject object = profile.getDeviceResources().stream()
+          .filter(obj -> obj.getName().equals(op.getObject())).findAny().orElse(null);
+
+      missing.put(name, createDescriptor(name, object));
     }
   }
 
   // TODO - jpw - need to simplify
-  private void buildDeviceObjectsMap(Device device, Map<String, ServiceObject> deviceObjects,
-      Map<String, Map<String, List<ResourceOperation>>> deviceOperations,
+  private void buildProfileObjectsMap(DeviceProfile profile,
+      Map<String, ServiceObject> profileObjects,
+      Map<String, Map<String, List<ResourceOperation>>> profileOperations,
       List<ResourceOperation> ops) {
-    // put the device's profile objects in the objects map
-    // put the device's profile objects in the commands map if no resource exists
-    for (DeviceObject object : device.getProfile().getDeviceResources()) {
+    // put the profile's objects in the objects map
+    // put the profile's objects in the commands map if no resource exists
+    for (DeviceObject object : profile.getDeviceResources()) {
       ServiceObject newServiceObject = serviceObjectFactory.createServiceObject(object);
 
       PropertyValue value = object.getProperties().getValue();
 
-      deviceObjects.put(object.getName(), newServiceObject);
+      profileObjects.put(symbols.canonical(object.getName()), newServiceObject);
 
       // if there is no resource defined for an object, create one based on the
       // RW parameters
-      if (!deviceOperations.containsKey(object.getName().toLowerCase())) {
+      if (!profileOperations.containsKey(object.getName().toLowerCase())) {
         String readWrite = value.getReadWrite();
 
         Map<String, List<ResourceOperation>> operations = new HashMap<>();
@@ -258,8 +616,67 @@ public class ProfileStoreImpl implements ProfileStore {
           ops.add(resource);
         }
 
-        deviceOperations.put(object.getName().toLowerCase(), operations);
+        profileOperations.put(symbols.canonical(object.getName().toLowerCase()), operations);
       }
     }
   }
+
+  /**
+   * Tables of one profile version, compiled by the first device added with it, and the count of
+   * devices holding them. The count is only changed from within the map operations on the
+   * profile's entry, which serialize the changes.
+   */
+  private static final class SharedTables {
+
+    private final CompletableFuture<ProfileTables> tables = new CompletableFuture<>();
+
+    private int devices;
+
+    SharedTables retain() {
+      devices++;
+      return this;
+    }
+
+    /**
+     * @return the number of devices still holding the tables
+     */
+    int release() {
+      return --devices;
+    }
+
+    void complete(ProfileTables compiled) {
+      tables.complete(compiled);
+    }
+
+    void fail(Throwable e) {
+      tables.completeExceptionally(e);
+    }
+
+    ProfileTables join() {
+      try {
+        return tables.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static final class CompiledIndex {
+
+    private final CommandIndex index;
+
+    // count of command table changes the index includes
+    private final int changes;
+
+    CompiledIndex(CommandIndex index, int changes) {
+      this.index = index;
+      this.changes = changes;
+    }
+  }
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.edgexfoundry.device.domain.CommandTable;
+import org.edgexfoundry.device.domain.ServiceObject;
+import org.edgexfoundry.domain.meta.ResourceOperation;
+
+/**
+ * Command and object tables compiled from one version of a device profile. The tables are read
+ * only and shared by every device added with that version, so a fleet of devices built from a
+ * handful of profiles holds a handful of tables rather than a copy per device.
+ * 
+ * @author Jim White
+ *
+ */
+class ProfileTables {
+
+  private final Map<String, Map<String, List<ResourceOperation>>> commands;
+
+  private final Map<String, ServiceObject> objects;
+
+  private final CommandTable commandTable;
+
+  ProfileTables(Map<String, Map<String, List<ResourceOperation>>> commands,
+      Map<String, ServiceObject> objects) {
+    Map<String, Map<String, List<ResourceOperation>>> sealed = new HashMap<>();
+    for (Map.Entry<String, Map<String, List<ResourceOperation>>> entry : commands.entrySet()) {
+      sealed.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+    }
+    this.commands = Collections.unmodifiableMap(sealed);
+    this.objects = Collections.unmodifiableMap(objects);
+    this.commandTable = new CommandTable(this.commands);
+  }
+
+  /**
+   * @return operations of each resource keyed by lower case resource name, then get or set
+   */
+  Map<String, Map<String, List<ResourceOperation>>> getCommands() {
+    return commands;
+  }
+
+  /**
+   * @return the commands compiled for lookups regardless of case
+   */
+  CommandTable getCommandTable() {
+    return commandTable;
+  }
+
+  /**
+   * @return the profile's objects keyed by name
+   */
+  Map<String, ServiceObject> getObjects() {
+    return objects;
+  }
+}
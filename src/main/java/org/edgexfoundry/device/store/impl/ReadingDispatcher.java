@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.edgexfoundry.device.domain.SubscriptionFilter;
+import org.edgexfoundry.device.store.ObjectStoreListener;
+import org.edgexfoundry.device.store.Subscription;
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.support.logging.client.EdgeXLogger;
+import org.edgexfoundry.support.logging.client.EdgeXLoggerFactory;
+
+/**
+ * Delivers stored readings to subscribed listeners. Each subscription owns a preallocated ring of
+ * event slots that writers claim without locking; a full ring drops the put and counts it, so a
+ * slow listener never blocks a writer. A subscription's ring is drained on a pooled dispatcher
+ * thread only while it has events, so idle subscriptions hold no thread.
+ *
+ * @author Jim White
+ *
+ */
+class ReadingDispatcher {
+
+  private static final EdgeXLogger logger =
+      EdgeXLoggerFactory.getEdgeXLogger(ReadingDispatcher.class);
+
+  private final List<RingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+  private volatile ExecutorService executor;
+
+  synchronized Subscription subscribe(ObjectStoreListener listener, SubscriptionFilter filter,
+      int queueSize) {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "object-store-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    RingSubscription subscription = new RingSubscription(listener,
+        filter == null ? new SubscriptionFilter() : filter, queueSize);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  boolean hasSubscriptions() {
+    return !subscriptions.isEmpty();
+  }
+
+  /**
+   * Queue the readings of a put for every matching subscription. Never blocks.
+   */
+  void publish(Device device, List<Reading> readings) {
+    for (RingSubscription subscription : subscriptions) {
+      if (subscription.filter.matches(device, readings)) {
+        subscription.offer(device, readings);
+      }
+    }
+  }
+
+  synchronized void shutdown() {
+    subscriptions.clear();
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private static final class Slot {
+
+    // position this slot is next written for (free) or read at (full, position + 1)
+    private volatile long sequence;
+
+    private Device device;
+
+    private List<Reading> readings;
+  }
+
+  private final class RingSubscription implements Subscription, Runnable {
+
+    private final ObjectStoreListener listener;
+
+    private final SubscriptionFilter filter;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // only read and written by the draining thread
+    private long head;
+
+    private volatile boolean cancelled;
+
+    RingSubscription(ObjectStoreListener listener, SubscriptionFilter filter, int queueSize) {
+      this.listener = listener;
+      this.filter = filter;
+      int capacity = Integer.highestOneBit(Math.max(queueSize, 2) - 1) << 1;
+      this.slots = new Slot[capacity];
+      this.mask = capacity - 1;
+      for (int i = 0; i < capacity; i++) {
+        slots[i] = new Slot();
+        slots[i].sequence = i;
+      }
+    }
+
+    void offer(Device device, List<Reading> readings) {
+      while (true) {
+        long position = tail.get();
+        Slot slot = slots[(int) (position & mask)];
+        long difference = slot.sequence - position;
+
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            slot.device = device;
+            slot.readings = readings;
+            slot.sequence = position + 1;
+            break;
+          }
+        } else if (difference < 0) {
+          dropped.incrementAndGet();
+          return;
+        }
+      }
+
+      schedule();
+    }
+
+    @Override
+    public void run() {
+      do {
+        drain();
+        scheduled.set(false);
+        // a writer may have queued an event after the drain but before the flag was cleared
+      } while (!cancelled && hasEvents() && scheduled.compareAndSet(false, true));
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+    }
+
+    @Override
+    public long getDropped() {
+      return dropped.get();
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        ExecutorService current = executor;
+        try {
+          if (current != null) {
+            current.execute(this);
+            return;
+          }
+        } catch (RejectedExecutionException e) {
+          logger.debug("Object store dispatcher is shut down: " + e.getMessage());
+        }
+        scheduled.set(false);
+      }
+    }
+
+    private boolean hasEvents() {
+      return slots[(int) (head & mask)].sequence == head + 1;
+    }
+
+    private void drain() {
+      while (!cancelled && hasEvents()) {
+        Slot slot = slots[(int) (head & mask)];
+        Device device = slot.device;
+        List<Reading> readings = slot.readings;
+        slot.device = null;
+        slot.readings = null;
+        slot.sequence = head + slots.length;
+        head++;
+        deliver(device, readings);
+      }
+    }
+
+    private void deliver(Device device, List<Reading> readings) {
+      List<Reading> delivered = readings;
+
+      if (filter.getObjectName() != null) {
+        delivered = new ArrayList<>(1);
+        for (Reading reading : readings) {
+          if (filter.getObjectName().equals(reading.getName())) {
+            delivered.add(reading);
+          }
+        }
+      }
+
+      try {
+        listener.onReadings(device, delivered);
+      } catch (RuntimeException e) {
+        logger.error("Object store listener failed: " + e.getMessage());
+      }
+    }
+  }
+}
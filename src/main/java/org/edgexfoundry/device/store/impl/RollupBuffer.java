@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.edgexfoundry.device.domain.Rollup;
+
+/**
+ * Tumbling window aggregates (count, min, max and sum) of the numeric values of a device object.
+ * Windows are aligned to multiples of their width since the epoch. The most recent windows are
+ * kept in a ring: a value updates the newest window in place, or opens the next one, so each value
+ * costs O(1) regardless of how many values a window holds. Sliding aggregates are combined from
+ * the windows they cover, so they cost at most one step per window kept.
+ * 
+ * A single writer (holding the owning device entry's lock) adds values. Readers take optimistic
+ * reads of the ring and only lock if the writer changed it while they were reading.
+ *
+ * @author Jim White
+ *
+ */
+final class RollupBuffer {
+
+  private final long width;
+
+  private final long[] starts;
+
+  private final long[] counts;
+
+  private final double[] mins;
+
+  private final double[] maxs;
+
+  private final double[] sums;
+
+  private final StampedLock lock = new StampedLock();
+
+  // slot of the newest window, -1 until the first value
+  private int newest = -1;
+
+  // number of windows opened, at most the ring's capacity
+  private int size;
+
+  /**
+   * @param width width of each window in milliseconds
+   * @param windows number of most recent windows kept
+   */
+  RollupBuffer(long width, int windows) {
+    this.width = Math.max(width, 1);
+    int capacity = Math.max(windows, 1);
+    starts = new long[capacity];
+    counts = new long[capacity];
+    mins = new double[capacity];
+    maxs = new double[capacity];
+    sums = new double[capacity];
+  }
+
+  /**
+   * Add a value to the window of its capture time. A value captured before the newest window
+   * (the clock was stepped back) is added to the newest window.
+   */
+  void add(double value, long timestamp) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+
+    long start = timestamp - Math.floorMod(timestamp, width);
+    long stamp = lock.writeLock();
+    try {
+      if (newest < 0 || start > starts[newest]) {
+        newest = (newest + 1) % starts.length;
+        size = Math.min(size + 1, starts.length);
+        starts[newest] = start;
+        counts[newest] = 0;
+        mins[newest] = value;
+        maxs[newest] = value;
+        sums[newest] = 0;
+      }
+
+      counts[newest]++;
+      mins[newest] = Math.min(mins[newest], value);
+      maxs[newest] = Math.max(maxs[newest], value);
+      sums[newest] += value;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Up to count of the most recent windows, newest first. The newest window is still open if its
+   * end is in the future.
+   */
+  List<Rollup> windows(int count) {
+    long stamp = lock.tryOptimisticRead();
+    List<Rollup> windows = readWindows(count);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        windows = readWindows(count);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return windows;
+  }
+
+  /**
+   * Aggregate of the windows overlapping [from, to). Whole windows are combined, so the result
+   * spans from the start of the first window to the end of the last one covered.
+   * 
+   * @return the aggregate, null if no value was captured in the range
+   */
+  Rollup aggregate(long from, long to) {
+    long stamp = lock.tryOptimisticRead();
+    Rollup rollup = readAggregate(from, to);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        rollup = readAggregate(from, to);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return rollup;
+  }
+
+  long footprint() {
+    return 64 + 40L * starts.length;
+  }
+
+  private List<Rollup> readWindows(int count) {
+    int available = Math.min(count, size);
+    int current = newest;
+    if (available <= 0 || current < 0) {
+      return Collections.emptyList();
+    }
+
+    List<Rollup> windows = new ArrayList<>(available);
+    for (int i = 0; i < available; i++) {
+      int slot = Math.floorMod(current - i, starts.length);
+      windows.add(new Rollup(starts[slot], starts[slot] + width, counts[slot], mins[slot],
+          maxs[slot], sums[slot]));
+    }
+    return windows;
+  }
+
+  private Rollup readAggregate(long from, long to) {
+    int current = newest;
+    long start = 0;
+    long end = 0;
+    long count = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    double sum = 0;
+
+    for (int i = 0; i < size && current >= 0; i++) {
+      int slot = Math.floorMod(current - i, starts.length);
+      long windowStart = starts[slot];
+      if (windowStart + width <= from) {
+        // windows only get older from here
+        break;
+      }
+      if (windowStart >= to) {
+        continue;
+      }
+      if (count == 0) {
+        end = windowStart + width;
+      }
+      start = windowStart;
+      count += counts[slot];
+      min = Math.min(min, mins[slot]);
+      max = Math.max(max, maxs[slot]);
+      sum += sums[slot];
+    }
+
+    return count == 0 ? null : new Rollup(start, end, count, min, max, sum);
+  }
+}
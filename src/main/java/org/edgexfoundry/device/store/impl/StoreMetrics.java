@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorders of the object store's hot paths. Each operation calls start before and the matching
+ * record method after; both are no-ops once recording is disabled, so a disabled store does not
+ * even read the clock.
+ *
+ * @author Jim White
+ *
+ */
+final class StoreMetrics {
+
+  private final LatencyHistogram puts = new LatencyHistogram();
+
+  private final LatencyHistogram gets = new LatencyHistogram();
+
+  private final LatencyHistogram lockWaits = new LatencyHistogram();
+
+  private final LongAdder responseHits = new LongAdder();
+
+  private final LongAdder responseMisses = new LongAdder();
+
+  private volatile boolean enabled = true;
+
+  void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the start time of a recorded operation, 0 when recording is disabled
+   */
+  long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  void recordPut(long started) {
+    if (started != 0) {
+      puts.record(System.nanoTime() - started);
+    }
+  }
+
+  void recordGet(long started) {
+    if (started != 0) {
+      gets.record(System.nanoTime() - started);
+    }
+  }
+
+  /**
+   * @param requested the time the lock was asked for, from start
+   */
+  void recordLockWait(long requested) {
+    if (requested != 0) {
+      lockWaits.record(System.nanoTime() - requested);
+    }
+  }
+
+  void recordResponse(boolean hit) {
+    if (enabled) {
+      (hit ? responseHits : responseMisses).increment();
+    }
+  }
+
+  LatencyHistogram getPuts() {
+    return puts;
+  }
+
+  LatencyHistogram getGets() {
+    return gets;
+  }
+
+  LatencyHistogram getLockWaits() {
+    return lockWaits;
+  }
+
+  long getResponseHits() {
+    return responseHits.sum();
+  }
+
+  long getResponseMisses() {
+    return responseMisses.sum();
+  }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.function.Consumer;
+
+/**
+ * Map from symbols to values for the few, rarely added keys of a single device. Entries live in
+ * flat open addressed arrays, so a lookup costs a probe or two and never boxes the key. The arrays
+ * are immutable once published: the writer (holding the owning entry's lock) copies them to add or
+ * replace a key, and readers take no locks.
+ *
+ * @author Jim White
+ *
+ */
+final class SymbolMap<V> {
+
+  private static final Table EMPTY = new Table(new int[2], new Object[2], 0);
+
+  private volatile Table table = EMPTY;
+
+  @SuppressWarnings("unchecked")
+  V get(int key) {
+    Table current = table;
+    int mask = current.keys.length - 1;
+    for (int index = hash(key) & mask;; index = (index + 1) & mask) {
+      Object value = current.values[index];
+      if (value == null || current.keys[index] == key) {
+        return (V) value;
+      }
+    }
+  }
+
+  /**
+   * Add or replace the value of a key. Only called by the writer.
+   */
+  void put(int key, V value) {
+    Table current = table;
+    int length = current.keys.length;
+    // keep at most half of the slots used so that probes stay short and always find a free slot
+    if ((current.size + 1) * 2 > length) {
+      length *= 2;
+    }
+
+    int[] keys = new int[length];
+    Object[] values = new Object[length];
+    int size = 0;
+    for (int i = 0; i < current.keys.length; i++) {
+      if (current.values[i] != null && current.keys[i] != key) {
+        insert(keys, values, current.keys[i], current.values[i]);
+        size++;
+      }
+    }
+    insert(keys, values, key, value);
+    table = new Table(keys, values, size + 1);
+  }
+
+  /**
+   * Remove the value of a key. Only called by the writer.
+   */
+  void remove(int key) {
+    Table current = table;
+    if (get(key) == null) {
+      return;
+    }
+
+    int[] keys = new int[current.keys.length];
+    Object[] values = new Object[current.keys.length];
+    for (int i = 0; i < current.keys.length; i++) {
+      if (current.values[i] != null && current.keys[i] != key) {
+        insert(keys, values, current.keys[i], current.values[i]);
+      }
+    }
+    table = new Table(keys, values, current.size - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  void forEach(Consumer<V> action) {
+    Table current = table;
+    for (Object value : current.values) {
+      if (value != null) {
+        action.accept((V) value);
+      }
+    }
+  }
+
+  /**
+   * @return a map holding the same entries; the two maps change independently from then on
+   */
+  SymbolMap<V> copy() {
+    SymbolMap<V> copy = new SymbolMap<>();
+    copy.table = table;
+    return copy;
+  }
+
+  int size() {
+    return table.size;
+  }
+
+  void clear() {
+    table = EMPTY;
+  }
+
+  private static void insert(int[] keys, Object[] values, int key, Object value) {
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    while (values[index] != null) {
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  private static int hash(int key) {
+    int hash = key * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class Table {
+
+    private final int[] keys;
+
+    private final Object[] values;
+
+    private final int size;
+
+    Table(int[] keys, Object[] values, int size) {
+      this.keys = keys;
+      this.values = values;
+      this.size = size;
+    }
+  }
+}
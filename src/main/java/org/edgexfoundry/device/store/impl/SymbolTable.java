@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dictionary of the device, object and value descriptor names known to the stores. Each name is
+ * given a compact int symbol the first time it is seen, and keeps that symbol for the life of the
+ * service. The stores key their internal data on symbols and hold the one canonical instance of
+ * each name, turning symbols back into names only where they are handed out.
+ * 
+ * Names are never forgotten, since a symbol may still be held by a plan or an entry: the names of
+ * removed devices and profiles stay in the table, roughly 100 bytes each. The table suits the
+ * usual bounded set of devices and objects; a service that keeps adding devices under new names
+ * grows it for as long as it runs, and {@link #size()} shows how far.
+ * 
+ * Lookups of known names take no locks; adding a name synchronizes on the table.
+ *
+ * @author Jim White
+ *
+ */
+@Component
+public class SymbolTable {
+
+  private final Map<String, Integer> symbols = new ConcurrentHashMap<>();
+
+  // name of each symbol, grown by copying; an entry is published by its symbol's map entry
+  private volatile String[] names = new String[64];
+
+  private int size;
+
+  /**
+   * @return the symbol of the name, adding the name if it is new
+   */
+  public int intern(String name) {
+    Integer symbol = symbols.get(name);
+    return symbol == null ? add(name) : symbol;
+  }
+
+  /**
+   * @return the symbol of the name, -1 if the name has never been interned
+   */
+  public int lookup(String name) {
+    if (name == null) {
+      return -1;
+    }
+    Integer symbol = symbols.get(name);
+    return symbol == null ? -1 : symbol;
+  }
+
+  public String name(int symbol) {
+    return names[symbol];
+  }
+
+  /**
+   * @return the table's instance of the name, so equal names share a single string
+   */
+  public String canonical(String name) {
+    return name == null ? null : name(intern(name));
+  }
+
+  /**
+   * @return the plan bound to this table's symbols, the plan itself if it is already bound
+   */
+  public OperationPlan bind(OperationPlan plan) {
+    if (plan.isBound()) {
+      return plan;
+    }
+
+    List<String> objectNames = plan.getObjectNames();
+    int[] objectSymbols = new int[objectNames.size()];
+    for (int i = 0; i < objectSymbols.length; i++) {
+      objectSymbols[i] = intern(objectNames.get(i));
+    }
+
+    return plan.bind(objectSymbols, intern(plan.getOperationId()));
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  private synchronized int add(String name) {
+    Integer symbol = symbols.get(name);
+    if (symbol != null) {
+      return symbol;
+    }
+
+    if (size == names.length) {
+      names = Arrays.copyOf(names, size * 2);
+    }
+    names[size] = name;
+    symbols.put(name, size);
+    return size++;
+  }
+}
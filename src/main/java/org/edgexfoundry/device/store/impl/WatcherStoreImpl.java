@@ -25,7 +25,6 @@ import java.util.stream.Collectors;
 
 import javax.ws.rs.NotFoundException;
 
-import org.edgexfoundry.controller.DeviceProfileClient;
 import org.edgexfoundry.controller.DeviceServiceClient;
 import org.edgexfoundry.controller.ProvisionWatcherClient;
 import org.edgexfoundry.device.domain.configuration.BaseProvisionWatcherConfiguration;
@@ -51,7 +50,7 @@ public class WatcherStoreImpl implements WatcherStore {
   private ProvisionWatcherClient provisionClient;
 
   @Autowired
-  private DeviceProfileClient profileClient;
+  private ProfileCache profileCache;
 
   @Autowired
   private DeviceServiceClient serviceClient;
@@ -168,7 +167,7 @@ public class WatcherStoreImpl implements WatcherStore {
     ProvisionWatcher watcher = new ProvisionWatcher(configuration.getNames()[pos]);
     try {
       if (configuration.getProfiles().length > 0) {
-        watcher.setProfile(profileClient.deviceProfileForName(configuration.getProfiles()[pos]));
+        watcher.setProfile(profileCache.get(configuration.getProfiles()[pos]));
       }
     } catch (NotFoundException nfe) {
       logger.error("Watcher's associated profile " + configuration.getProfiles()[pos]
@@ -32,5 +32,12 @@ public interface UpdateHandler {
 
   boolean updateWatcher(String provisionWatcher);
 
+  /**
+   * Handle metadata's notice that a profile was updated. Implementations must invalidate the
+   * profile in the shared ProfileCache (invalidateById) before re-reading it, otherwise devices
+   * and watchers keep getting the cached copy until its time to live runs out.
+   * 
+   * @param profileId id of the updated profile
+   */
   boolean updateProfile(String profileId);
 }
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+
+package org.edgexfoundry.device.domain.configuration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.edgexfoundry.device.domain.Deadband;
+import org.edgexfoundry.test.category.RequiresSpring;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = DeadbandConfigurationTest.Config.class)
+@TestPropertySource(locations = "file:src/test/resources/deadband.properties")
+@Category(RequiresSpring.class)
+public class DeadbandConfigurationTest {
+
+  public static final String[] TEST_DESCRIPTORS = {"temperature", "humidity"};
+  private static final double DELTA = 0.000001;
+
+  @Autowired
+  private DeadbandConfiguration config;
+
+  @Before
+  public void setup() {
+    assertNotNull("Configuration not loaded", config.getDescriptors());
+  }
+
+  @Test
+  public void testInitialization() {
+    assertEquals("Size not correct", 2, config.getSize());
+    assertArrayEquals("Descriptors not read correctly", TEST_DESCRIPTORS,
+        config.getDescriptors());
+    Map<String, Deadband> deadbands = config.getDeadbands();
+    assertEquals("Deadband not configured for each descriptor", 2, deadbands.size());
+    assertEquals("Absolute not parsed correctly", 0.5,
+        deadbands.get("temperature").getAbsolute(), DELTA);
+    assertEquals("Percent not parsed correctly", 0, deadbands.get("temperature").getPercent(),
+        DELTA);
+    assertEquals("Absolute not parsed correctly", 0, deadbands.get("humidity").getAbsolute(),
+        DELTA);
+    assertEquals("Percent not parsed correctly", 2.5, deadbands.get("humidity").getPercent(),
+        DELTA);
+  }
+
+  @Test
+  public void testParsing() {
+    DeadbandConfiguration config = new DeadbandConfiguration();
+    config.setDescriptors(new String[] {" temperature ", "humidity"});
+    config.setAbsolutes(new String[] {" 1.5 ", ""});
+    config.setPercents(new String[] {null, "1e1"});
+    Map<String, Deadband> deadbands = config.getDeadbands();
+    assertEquals("Descriptor not trimmed", 1.5, deadbands.get("temperature").getAbsolute(),
+        DELTA);
+    assertEquals("Missing percent not zero", 0, deadbands.get("temperature").getPercent(), DELTA);
+    assertEquals("Empty absolute not zero", 0, deadbands.get("humidity").getAbsolute(), DELTA);
+    assertEquals("Percent not parsed correctly", 10, deadbands.get("humidity").getPercent(),
+        DELTA);
+  }
+
+  @Test
+  public void testMismatchedLengths() {
+    DeadbandConfiguration config = new DeadbandConfiguration();
+    config.setDescriptors(new String[] {"temperature", "humidity", "pressure"});
+    config.setAbsolutes(new String[] {"0.5"});
+    config.setPercents(new String[] {"1", "2", "3", "4"});
+    Map<String, Deadband> deadbands = config.getDeadbands();
+    assertEquals("Deadband not configured for each descriptor", 3, deadbands.size());
+    assertEquals("Absolute not parsed correctly", 0.5,
+        deadbands.get("temperature").getAbsolute(), DELTA);
+    assertEquals("Absolute past the end not zero", 0, deadbands.get("pressure").getAbsolute(),
+        DELTA);
+    assertEquals("Percent not parsed correctly", 3, deadbands.get("pressure").getPercent(),
+        DELTA);
+  }
+
+  @Test
+  public void testUnknownDescriptor() {
+    assertNull("Unconfigured descriptor has a deadband", config.getDeadbands().get("pressure"));
+    DeadbandConfiguration empty = new DeadbandConfiguration();
+    assertEquals("Deadbands not empty", 0, empty.getDeadbands().size());
+  }
+
+  @Test
+  public void testSettersResetDeadbands() {
+    DeadbandConfiguration config = new DeadbandConfiguration();
+    config.setDescriptors(new String[] {"temperature"});
+    config.setAbsolutes(new String[] {"1"});
+    assertEquals("Absolute not parsed correctly", 1, config.getDeadbands().get("temperature")
+        .getAbsolute(), DELTA);
+    config.setAbsolutes(new String[] {"2"});
+    assertEquals("Deadbands not rebuilt", 2, config.getDeadbands().get("temperature")
+        .getAbsolute(), DELTA);
+  }
+
+  @Test
+  public void testNullChecks() {
+    DeadbandConfiguration config = new DeadbandConfiguration();
+    assertEquals("Descriptors not empty", 0, config.getDescriptors().length);
+    assertEquals("Absolutes not empty", 0, config.getAbsolutes().length);
+    assertEquals("Percents not empty", 0, config.getPercents().length);
+  }
+
+  @Configuration
+  @ComponentScan("org.edgexfoundry.device.domain")
+  static class Config {
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertiesResolver() {
+      return new PropertySourcesPlaceholderConfigurer();
+    }
+
+  }
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.edgexfoundry.domain.core.Event;
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.test.category.RequiresNone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(RequiresNone.class)
+public class EventExporterTest {
+
+  private static final String TEST_DEVICE = "test device";
+
+  private EventExporter exporter;
+
+  private BlockingQueue<Event> events;
+
+  @Before
+  public void setup() throws IllegalAccessException {
+    events = new LinkedBlockingQueue<>();
+    exporter = new EventExporter();
+    FieldUtils.writeField(exporter, "enabled", true, true);
+    FieldUtils.writeField(exporter, "batchSize", 2, true);
+    FieldUtils.writeField(exporter, "flushInterval", 60000L, true);
+    FieldUtils.writeField(exporter, "concurrency", 1, true);
+    FieldUtils.writeField(exporter, "pendingLimit", 1, true);
+    FieldUtils.writeField(exporter, "heldLimit", 3, true);
+    FieldUtils.writeField(exporter, "retries", 1, true);
+    FieldUtils.writeField(exporter, "eventSink", (EventSink) events::add, true);
+    exporter.initialize();
+  }
+
+  @After
+  public void cleanup() {
+    exporter.close();
+  }
+
+  @Test
+  public void testExportFullBatch() throws InterruptedException {
+    exporter.export(TEST_DEVICE, Collections.singletonList(new Reading("temp", "1")));
+    assertEquals("Partial batch should not be sent", 0, events.size());
+    exporter.export(TEST_DEVICE, Collections.singletonList(new Reading("temp", "2")));
+    Event event = events.poll(5, TimeUnit.SECONDS);
+    assertEquals("Full batch should be sent as one event", 2, event.getReadings().size());
+    assertEquals("Event should be for the device", TEST_DEVICE, event.getDevice());
+  }
+
+  @Test
+  public void testFlush() throws InterruptedException {
+    exporter.export(TEST_DEVICE, Collections.singletonList(new Reading("temp", "1")));
+    exporter.flush();
+    Event event = events.poll(5, TimeUnit.SECONDS);
+    assertEquals("Flush should send the partial batch", 1, event.getReadings().size());
+  }
+
+  @Test
+  public void testDisabled() throws IllegalAccessException, InterruptedException {
+    exporter.close();
+    exporter = new EventExporter();
+    FieldUtils.writeField(exporter, "batchSize", 1, true);
+    FieldUtils.writeField(exporter, "eventSink", (EventSink) events::add, true);
+    exporter.initialize();
+    assertNull("Disabled exporter should start no threads",
+        FieldUtils.readField(exporter, "flusher", true));
+    exporter.export(TEST_DEVICE, Collections.singletonList(new Reading("temp", "1")));
+    assertNull("Disabled exporter should send nothing", events.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testBackpressureHoldsBatch() throws IllegalAccessException, InterruptedException {
+    exporter.close();
+    CountDownLatch release = new CountDownLatch(1);
+    FieldUtils.writeField(exporter, "eventSink", (EventSink) event -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      events.add(event);
+    }, true);
+    exporter.initialize();
+
+    List<Reading> batch = Arrays.asList(new Reading("temp", "1"), new Reading("temp", "2"));
+    exporter.export(TEST_DEVICE, batch);
+    exporter.export(TEST_DEVICE, batch);
+    assertEquals("Batch should be held while the sink is busy", 0, exporter.getDropped());
+    exporter.export(TEST_DEVICE, batch);
+    assertEquals("Readings past the held limit should be dropped", 1, exporter.getDropped());
+
+    release.countDown();
+    assertEquals("First batch should be sent", 2,
+        events.poll(5, TimeUnit.SECONDS).getReadings().size());
+    Event held = null;
+    for (int i = 0; i < 50 && held == null; i++) {
+      exporter.flush();
+      held = events.poll(100, TimeUnit.MILLISECONDS);
+    }
+    assertEquals("Held batch should be sent once the sink frees up", 3,
+        held.getReadings().size());
+  }
+
+  @Test
+  public void testFailedSendRetried() throws IllegalAccessException, InterruptedException {
+    exporter.close();
+    AtomicInteger attempts = new AtomicInteger();
+    FieldUtils.writeField(exporter, "eventSink", (EventSink) event -> {
+      if (attempts.getAndIncrement() == 0) {
+        throw new IllegalStateException("sink unavailable");
+      }
+      events.add(event);
+    }, true);
+    exporter.initialize();
+
+    exporter.export(TEST_DEVICE, Arrays.asList(new Reading("temp", "1"), new Reading("temp", "2")));
+    assertEquals("Failed send should be retried", 2,
+        events.poll(5, TimeUnit.SECONDS).getReadings().size());
+    assertEquals("Retried send should not count as failed", 0, exporter.getFailed());
+  }
+}
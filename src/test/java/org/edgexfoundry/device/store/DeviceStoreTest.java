@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -36,6 +37,7 @@ import org.apache.commons.lang3.reflect.FieldUtils;
 import org.edgexfoundry.controller.AddressableClient;
 import org.edgexfoundry.controller.DeviceClient;
 import org.edgexfoundry.device.store.impl.DeviceStoreImpl;
+import org.edgexfoundry.device.store.impl.ObjectStoreImpl;
 import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
 import org.edgexfoundry.domain.meta.Addressable;
 import org.edgexfoundry.domain.meta.Device;
@@ -72,6 +74,9 @@ public class DeviceStoreTest {
   @Mock
   private ProfileStoreImpl profileStore;
 
+  @Mock
+  private ObjectStoreImpl objectStore;
+
   @Mock
   private ServiceHandler handler;
 
@@ -176,6 +181,7 @@ public class DeviceStoreTest {
         deviceStore.getDevice(device.getName()));
     assertTrue("Device was not removed from device store successfully",
         deviceStore.remove(device.getId(), handler));
+    verify(objectStore).remove(device.getId());
   }
 
   @Test
@@ -18,24 +18,58 @@
 
 package org.edgexfoundry.device.store;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.edgexfoundry.device.domain.DeviceUsage;
+import org.edgexfoundry.device.domain.LatestValues;
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.edgexfoundry.device.domain.Rollup;
+import org.edgexfoundry.device.domain.ServiceObject;
+import org.edgexfoundry.device.domain.SubscriptionFilter;
+import org.edgexfoundry.device.domain.configuration.DeadbandConfiguration;
 import org.edgexfoundry.device.store.impl.ObjectStoreImpl;
+import org.edgexfoundry.device.store.impl.ObjectStoreMetricsImpl;
 import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
+import org.edgexfoundry.device.store.impl.SymbolTable;
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.domain.core.Reading;
 import org.edgexfoundry.domain.meta.Device;
 import org.edgexfoundry.domain.meta.DeviceProfile;
 import org.edgexfoundry.domain.meta.ResourceOperation;
 import org.edgexfoundry.test.category.RequiresNone;
 import org.edgexfoundry.test.data.DeviceData;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.yaml.snakeyaml.Yaml;
 
 // TODO - add more testing when ObjectStore is cleaned up - jpw
@@ -44,12 +78,24 @@ public class ObjectStoreTest {
 
   private static final String TEST_VALUE = "test value";
 
+  private static final String TEST_OBJECT = "AnalogInput_3000290";
+
+  private static final String TEST_DESCRIPTOR = "CurrentTemperature";
+
+  private static final String TEST_DEVICE_ID = "1234";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @InjectMocks
   private ObjectStoreImpl objectStore;
 
   @Mock
   private ProfileStoreImpl profileStore;
 
+  @Spy
+  private SymbolTable symbols = new SymbolTable();
+
   private Device device;
 
   private ResourceOperation operation;
@@ -58,6 +104,7 @@ public class ObjectStoreTest {
   public void setup() throws IOException {
     MockitoAnnotations.initMocks(this);
     device = DeviceData.newTestInstance();
+    device.setId(TEST_DEVICE_ID);
     operation = new ResourceOperation();
     DeviceProfile profile = loadProfile();
     device.setProfile(profile);
@@ -76,6 +123,17 @@ public class ObjectStoreTest {
     objectStore.put(device, operation, TEST_VALUE);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBoundPlanCached() throws IllegalAccessException {
+    ResourceOperation op = registerObject();
+    objectStore.put(device, op, TEST_VALUE);
+    objectStore.put(device, op, TEST_VALUE);
+    Map<OperationPlan, OperationPlan> boundPlans =
+        (Map<OperationPlan, OperationPlan>) FieldUtils.readField(objectStore, "boundPlans", true);
+    assertEquals("Unbound plan should be bound once", 1, boundPlans.size());
+  }
+
   @Test
   public void testPutNull() {
     objectStore.put(device, operation, null);
@@ -90,4 +148,467 @@ public class ObjectStoreTest {
   public void testGetResposnes() {
     objectStore.getResponses(device, operation);
   }
+
+  @Test
+  public void testGetEmpty() {
+    assertNull("Nothing has been stored for the object", objectStore.get(device.getId(),
+        TEST_DESCRIPTOR));
+    assertTrue("Nothing has been stored for the object",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR, 5).isEmpty());
+  }
+
+  @Test
+  public void testGetLatest() {
+    ResourceOperation op = registerObject();
+    objectStore.put(device, op, "1");
+    objectStore.put(device, op, "2");
+    assertEquals("Latest value not returned", "2",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+  }
+
+  @Test
+  public void testHistory() throws IllegalAccessException {
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    ResourceOperation op = registerObject();
+    for (int i = 1; i <= 4; i++) {
+      objectStore.put(device, op, Integer.toString(i));
+    }
+    List<String> history = objectStore.get(device.getId(), TEST_DESCRIPTOR, 5);
+    assertEquals("History should be bounded by the cache size", 3, history.size());
+    assertEquals("History should be newest first", "4", history.get(0));
+    assertEquals("History should be newest first", "2", history.get(2));
+    assertEquals("History should honor the requested count", 2,
+        objectStore.get(device.getId(), TEST_DESCRIPTOR, 2).size());
+  }
+
+  @Test
+  public void testTypedHistory() throws IllegalAccessException {
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    FieldUtils.writeField(objectStore, "typed", true, true);
+    ResourceOperation op = registerObject(IoTType.F);
+    objectStore.put(device, op, "72.50");
+    assertEquals("Typed value should be formatted from its primitive form", "72.5",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+    objectStore.put(device, op, "n/a");
+    List<String> history = objectStore.get(device.getId(), TEST_DESCRIPTOR, 3);
+    assertEquals("Unparseable value should still be stored", "n/a", history.get(0));
+    assertEquals("Earlier typed values should be kept", "72.5", history.get(1));
+  }
+
+  @Test
+  public void testGetReadingsInRange() throws IllegalAccessException, InterruptedException {
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    ResourceOperation op = registerObject();
+    long start = System.currentTimeMillis();
+    objectStore.put(device, op, "1");
+    Thread.sleep(10);
+    long middle = System.currentTimeMillis();
+    objectStore.put(device, op, "2");
+    long end = System.currentTimeMillis();
+
+    List<Reading> readings = objectStore.getReadings(device, TEST_DESCRIPTOR, start, end);
+    assertEquals("Both readings should be in range", 2, readings.size());
+    assertEquals("Readings should be oldest first", "1", readings.get(0).getValue());
+    assertTrue("Reading should carry its capture time", readings.get(0).getOrigin() >= start);
+
+    readings = objectStore.getReadings(device, op, middle, end);
+    assertEquals("Only the second reading should be in range", 1, readings.size());
+    assertEquals("Only the second reading should be in range", "2", readings.get(0).getValue());
+    assertTrue("No readings should be found before the first capture",
+        objectStore.getReadings(device, op, 0, start - 1).isEmpty());
+  }
+
+  @Test
+  public void testPutAll() {
+    ResourceOperation op = registerObject();
+    Map<ResourceOperation, String> values = new LinkedHashMap<>();
+    values.put(op, TEST_VALUE);
+    values.put(new ResourceOperation("get", "unknown"), TEST_VALUE);
+
+    List<Reading> readings = objectStore.putAll(device, values);
+    assertEquals("Only the resolvable operation should produce readings", 1, readings.size());
+    assertEquals("Reading should carry the stored value", TEST_VALUE, readings.get(0).getValue());
+    assertEquals("Value should be stored", TEST_VALUE,
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+    assertEquals("Operation responses should be stored", readings,
+        objectStore.getResponses(device, op));
+    assertTrue("Empty values should be skipped",
+        objectStore.putAll(device, Collections.singletonMap(op, "")).isEmpty());
+  }
+
+  @Test
+  public void testDeadband() throws IllegalAccessException {
+    DeadbandConfiguration deadbands = new DeadbandConfiguration();
+    deadbands.setDescriptors(new String[] {TEST_DESCRIPTOR});
+    deadbands.setAbsolutes(new String[] {"0.5"});
+    FieldUtils.writeField(objectStore, "deadbandConfiguration", deadbands, true);
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    FieldUtils.writeField(objectStore, "typed", true, true);
+    ResourceOperation op = registerObject(IoTType.F);
+
+    objectStore.put(device, op, "72.0");
+    objectStore.put(device, op, "72.3");
+    objectStore.put(device, op, "73.0");
+    List<String> history = objectStore.get(device.getId(), TEST_DESCRIPTOR, 3);
+    assertEquals("Value within the deadband should not be stored", 2, history.size());
+    assertEquals("Value outside the deadband should be stored", "73.0", history.get(0));
+    assertTrue("Suppressed value should produce no readings",
+        objectStore.putAll(device, Collections.singletonMap(op, "73.2")).isEmpty());
+  }
+
+  @Test
+  public void testDeadbandResponses() throws IllegalAccessException {
+    DeadbandConfiguration deadbands = new DeadbandConfiguration();
+    deadbands.setDescriptors(new String[] {TEST_DESCRIPTOR});
+    deadbands.setAbsolutes(new String[] {"0.5"});
+    FieldUtils.writeField(objectStore, "deadbandConfiguration", deadbands, true);
+    FieldUtils.writeField(objectStore, "typed", true, true);
+    ResourceOperation op = registerObject(IoTType.F);
+
+    objectStore.put(device, op, "72.0");
+    objectStore.put(device, op, "72.3");
+    List<Reading> responses = objectStore.getResponses(device, op);
+    assertEquals("Suppressed value should leave one response", 1, responses.size());
+    assertEquals("Response should hold the stored value, not the suppressed one",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR), responses.get(0).getValue());
+  }
+
+  @Test
+  public void testGetStreaming() throws IOException {
+    ResourceOperation op = registerObject();
+    objectStore.put(device, op, "say \"hi\"\n\u00e9\u2028");
+    String expected = objectStore.get(device, op).toString();
+
+    StringBuilder chars = new StringBuilder();
+    objectStore.get(device, op, chars);
+    assertEquals("Streamed JSON should match the JSON object", expected, chars.toString());
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    objectStore.get(device, op, stream);
+    assertArrayEquals("Streamed bytes should be the UTF-8 JSON",
+        expected.getBytes(StandardCharsets.UTF_8), stream.toByteArray());
+
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+    objectStore.get(device, op, buffer);
+    buffer.flip();
+    assertEquals("Buffered JSON should match the JSON object", expected,
+        StandardCharsets.UTF_8.decode(buffer).toString());
+  }
+
+  @Test
+  public void testRollup() throws IllegalAccessException {
+    FieldUtils.writeField(objectStore, "rollupWidth", 60000L, true);
+    FieldUtils.writeField(objectStore, "rollupWindows", 5, true);
+    ResourceOperation op = registerObject(IoTType.F);
+    objectStore.put(device, op, "1");
+    objectStore.put(device, op, "2");
+    objectStore.put(device, op, "3");
+
+    Rollup rollup = objectStore.getRollup(device, TEST_DESCRIPTOR, 60000);
+    assertEquals("Rollup should count every value", 3, rollup.getCount());
+    assertEquals("Rollup should hold the smallest value", 1.0, rollup.getMin(), 0);
+    assertEquals("Rollup should hold the largest value", 3.0, rollup.getMax(), 0);
+    assertEquals("Rollup should average the values", 2.0, rollup.getAverage(), 0);
+
+    List<Rollup> windows = objectStore.getRollups(device, TEST_DESCRIPTOR, 5);
+    assertTrue("Open window should be returned", !windows.isEmpty());
+    assertEquals("Newest window should hold the latest value", 3.0, windows.get(0).getMax(), 0);
+  }
+
+  @Test
+  public void testArchivedHistory() throws IllegalAccessException {
+    FieldUtils.writeField(objectStore, "cacheSize", 4, true);
+    FieldUtils.writeField(objectStore, "typed", true, true);
+    FieldUtils.writeField(objectStore, "archiveBlocks", 4, true);
+    ResourceOperation op = registerObject(IoTType.F);
+    for (int i = 1; i <= 10; i++) {
+      objectStore.put(device, op, Integer.toString(i));
+    }
+
+    List<Reading> readings = objectStore.getReadings(device, TEST_DESCRIPTOR, 0, Long.MAX_VALUE);
+    assertEquals("Archived values should be read back with the history", 10, readings.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("Values should be returned oldest first", Double.toString(i + 1),
+          readings.get(i).getValue());
+    }
+    assertEquals("History depth should not change", 4,
+        objectStore.get(device.getId(), TEST_DESCRIPTOR, 10).size());
+  }
+
+  @Test
+  public void testMetrics() throws IllegalAccessException {
+    ObjectStoreMetricsImpl metrics = new ObjectStoreMetricsImpl();
+    FieldUtils.writeField(metrics, "objectStore", objectStore, true);
+    ResourceOperation op = registerObject();
+    objectStore.getResponses(device, op);
+    objectStore.put(device, op, TEST_VALUE);
+    objectStore.getResponses(device, op);
+    objectStore.get(device.getId(), TEST_DESCRIPTOR);
+
+    assertEquals("Put should be timed", 1, metrics.getPutLatency().getCount());
+    assertEquals("Gets and getResponses should be timed", 3, metrics.getGetLatency().getCount());
+    assertEquals("Writer should have taken the device lock once", 1,
+        metrics.getLockWait().getCount());
+    assertEquals("Response hit should be counted", 1, metrics.getResponseHits());
+    assertEquals("Response miss should be counted", 1, metrics.getResponseMisses());
+
+    List<DeviceUsage> devices = metrics.getDeviceUsage();
+    assertEquals("Device should be reported", 1, devices.size());
+    assertEquals("Device's object should be counted", 1, devices.get(0).getObjects());
+    assertEquals("Device's response should be counted", 1, devices.get(0).getResponses());
+    assertEquals("Device bytes should add up to the cache's", metrics.getCacheBytes(),
+        devices.get(0).getBytes());
+    assertEquals("Flat metrics should carry the put count", 1L,
+        metrics.getMetrics().get("objectstore.put.count"));
+  }
+
+  @Test
+  public void testGetLatestByProfile() {
+    ResourceOperation op = registerObject();
+    Device other = registerDevice("other", op);
+    Device idle = registerDevice("idle", op);
+    String profileName = device.getProfile().getName();
+    when(profileStore.getDevices(profileName)).thenReturn(Arrays.asList(device, other, idle));
+    objectStore.put(device, op, "1");
+    objectStore.put(other, op, "2");
+
+    LatestValues latest = objectStore.getLatest(profileName, TEST_DESCRIPTOR);
+    assertEquals("Every device of the profile should have a row", 3, latest.size());
+    assertEquals("Device's latest value should be returned", "1",
+        latest.getValue(device.getName(), TEST_DESCRIPTOR));
+    assertEquals("Device's latest value should be returned", "2",
+        latest.getValue("other", TEST_DESCRIPTOR));
+    assertNull("Device without values should have none", latest.getValue("idle", TEST_DESCRIPTOR));
+
+    latest = objectStore.getLatest(profileName, op);
+    assertEquals("Operation's objects should be the columns",
+        Collections.singletonList(TEST_DESCRIPTOR), latest.getObjects());
+    assertEquals("Device's latest value should be returned", "2", latest.getValue(1, 0));
+  }
+
+  @Test
+  public void testPutThroughDeviceSlot() {
+    ResourceOperation op = registerObject();
+    OperationPlan plan = profileStore.getOperationPlan(device, op).forDevice(0);
+    when(profileStore.getOperationPlan(device, op)).thenReturn(plan);
+    objectStore.put(device, op, "1");
+    assertEquals("Value put through the device's slot should be stored", "1",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+
+    objectStore.remove(device.getId());
+    objectStore.put(device, op, "2");
+    assertEquals("Put after removal should reach the device's new entry", "2",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+
+    Device other = registerDevice("other", op);
+    OperationPlan reused = profileStore.getOperationPlan(other, op).forDevice(0);
+    when(profileStore.getOperationPlan(other, op)).thenReturn(reused);
+    objectStore.put(other, op, "3");
+    assertEquals("Reused slot should not write to the previous device", "2",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+    assertEquals("Reused slot should write to its new device", "3",
+        objectStore.get("other", TEST_DESCRIPTOR));
+  }
+
+  @Test
+  public void testRemove() {
+    ResourceOperation op = registerObject();
+    objectStore.put(device, op, TEST_VALUE);
+    objectStore.remove(device.getId());
+    assertNull("Removed device's values should be dropped",
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+    assertTrue("Removed device's responses should be dropped",
+        objectStore.getResponses(device, op).isEmpty());
+  }
+
+  @Test
+  public void testEvictColdDevice() throws IllegalAccessException {
+    ResourceOperation op = registerObject();
+    Device warm = registerDevice("warm", op);
+    Device cold = registerDevice("cold", op);
+    objectStore.put(warm, op, TEST_VALUE);
+    objectStore.put(cold, op, TEST_VALUE);
+    AtomicLong usage = (AtomicLong) FieldUtils.readField(objectStore, "usage", true);
+    FieldUtils.writeField(objectStore, "cacheBudget", usage.get() + 1, true);
+
+    objectStore.get(warm.getId(), TEST_DESCRIPTOR);
+    objectStore.put(device, op, TEST_VALUE);
+    assertNull("Device used once should be evicted first",
+        objectStore.get(cold.getId(), TEST_DESCRIPTOR));
+    assertEquals("Device used again should be kept", TEST_VALUE,
+        objectStore.get(warm.getId(), TEST_DESCRIPTOR));
+    assertEquals("Newest device should be kept", TEST_VALUE,
+        objectStore.get(device.getId(), TEST_DESCRIPTOR));
+  }
+
+  @Test
+  public void testSubscribe() throws IllegalAccessException, InterruptedException {
+    FieldUtils.writeField(objectStore, "subscriptionQueue", 16, true);
+    ResourceOperation op = registerObject();
+    CountDownLatch delivered = new CountDownLatch(1);
+    List<Reading> received = new CopyOnWriteArrayList<>();
+    Subscription subscription = objectStore.subscribe((d, readings) -> {
+      received.addAll(readings);
+      delivered.countDown();
+    }, new SubscriptionFilter(device.getName(), TEST_DESCRIPTOR, null));
+    Subscription other = objectStore.subscribe((d, readings) -> received.addAll(readings),
+        new SubscriptionFilter("another device", null, null));
+
+    objectStore.put(device, op, TEST_VALUE);
+    assertTrue("Put should be delivered to the listener", delivered.await(5, TimeUnit.SECONDS));
+    assertEquals("Only the matching subscription should receive the put", 1, received.size());
+    assertEquals("Listener should receive the stored value", TEST_VALUE,
+        received.get(0).getValue());
+    assertEquals("No puts should be dropped", 0, subscription.getDropped());
+    subscription.cancel();
+    other.cancel();
+    objectStore.close();
+  }
+
+  @Test
+  public void testPersistentHistory() throws IllegalAccessException, IOException {
+    String path = folder.newFolder("history").getPath();
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    FieldUtils.writeField(objectStore, "persistPath", path, true);
+    FieldUtils.writeField(objectStore, "persistValueSize", 64, true);
+    objectStore.initialize();
+    ResourceOperation op = registerObject();
+    for (int i = 1; i <= 4; i++) {
+      objectStore.put(device, op, Integer.toString(i));
+    }
+    objectStore.close();
+
+    ObjectStoreImpl restarted = new ObjectStoreImpl();
+    FieldUtils.writeField(restarted, "cacheSize", 3, true);
+    FieldUtils.writeField(restarted, "persistPath", path, true);
+    FieldUtils.writeField(restarted, "persistValueSize", 64, true);
+    FieldUtils.writeField(restarted, "symbols", new SymbolTable(), true);
+    restarted.initialize();
+    List<String> history = restarted.get(device.getId(), TEST_DESCRIPTOR, 3);
+    assertEquals("History should be recovered after a restart", 3, history.size());
+    assertEquals("Recovered history should be newest first", "4", history.get(0));
+    assertEquals("Recovered history should be newest first", "2", history.get(2));
+  }
+
+  @Test
+  public void testPersistentHistoryEviction() throws IllegalAccessException, IOException {
+    String path = folder.newFolder("evicted").getPath();
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    FieldUtils.writeField(objectStore, "persistPath", path, true);
+    FieldUtils.writeField(objectStore, "persistValueSize", 64, true);
+    objectStore.initialize();
+    ResourceOperation op = registerObject();
+    Device cold = registerDevice("cold", op);
+    Device idle = registerDevice("idle", op);
+    objectStore.put(cold, op, "1");
+    objectStore.put(cold, op, "2");
+    objectStore.put(idle, op, "1");
+    FieldUtils.writeField(objectStore, "cacheBudget", 1L, true);
+
+    objectStore.put(device, op, TEST_VALUE);
+    assertNull("Cold device should be evicted from memory",
+        objectStore.get(cold.getId(), TEST_DESCRIPTOR));
+    assertNull("Idle device should be evicted from memory",
+        objectStore.get(idle.getId(), TEST_DESCRIPTOR));
+    FieldUtils.writeField(objectStore, "cacheBudget", 0L, true);
+    objectStore.put(cold, op, "3");
+    assertEquals("Evicted history should be reloaded when the device is used again",
+        Arrays.asList("3", "2", "1"), objectStore.get(cold.getId(), TEST_DESCRIPTOR, 3));
+    objectStore.close();
+
+    ObjectStoreImpl restarted = new ObjectStoreImpl();
+    FieldUtils.writeField(restarted, "cacheSize", 3, true);
+    FieldUtils.writeField(restarted, "persistPath", path, true);
+    FieldUtils.writeField(restarted, "persistValueSize", 64, true);
+    FieldUtils.writeField(restarted, "symbols", new SymbolTable(), true);
+    restarted.initialize();
+    assertEquals("Evicted device's history should survive a restart",
+        Arrays.asList("1"), restarted.get(idle.getId(), TEST_DESCRIPTOR, 3));
+    assertEquals("Reloaded history should be kept once, with its later values",
+        Arrays.asList("3", "2", "1"), restarted.get(cold.getId(), TEST_DESCRIPTOR, 3));
+  }
+
+  @Test
+  public void testPersistentHistoryMigration() throws IllegalAccessException, IOException {
+    String path = folder.newFolder("migrated").getPath();
+    FieldUtils.writeField(objectStore, "cacheSize", 3, true);
+    FieldUtils.writeField(objectStore, "persistPath", path, true);
+    FieldUtils.writeField(objectStore, "persistValueSize", 64, true);
+    objectStore.initialize();
+    ResourceOperation op = registerObject();
+    for (int i = 1; i <= 3; i++) {
+      objectStore.put(device, op, Integer.toString(i));
+    }
+    objectStore.close();
+
+    ObjectStoreImpl restarted = new ObjectStoreImpl();
+    FieldUtils.writeField(restarted, "cacheSize", 5, true);
+    FieldUtils.writeField(restarted, "persistPath", path, true);
+    FieldUtils.writeField(restarted, "persistValueSize", 32, true);
+    FieldUtils.writeField(restarted, "symbols", new SymbolTable(), true);
+    restarted.initialize();
+    restarted.close();
+
+    ObjectStoreImpl again = new ObjectStoreImpl();
+    FieldUtils.writeField(again, "cacheSize", 5, true);
+    FieldUtils.writeField(again, "persistPath", path, true);
+    FieldUtils.writeField(again, "persistValueSize", 32, true);
+    FieldUtils.writeField(again, "symbols", new SymbolTable(), true);
+    again.initialize();
+    assertEquals("History should be copied into the new geometry once",
+        Arrays.asList("3", "2", "1"), again.get(device.getId(), TEST_DESCRIPTOR, 5));
+    assertEquals("Old segment should be replaced by the new one", 1,
+        new File(path).listFiles().length);
+  }
+
+  @Test
+  public void testLatestValueLog() throws IllegalAccessException, IOException {
+    String path = folder.newFolder("log").getPath();
+    FieldUtils.writeField(objectStore, "logPath", path, true);
+    FieldUtils.writeField(objectStore, "logCompactInterval", 60000L, true);
+    objectStore.initialize();
+    ResourceOperation op = registerObject();
+    objectStore.put(device, op, "1");
+    objectStore.put(device, op, "2");
+    objectStore.put(registerDevice("removed", op), op, TEST_VALUE);
+    objectStore.remove("removed");
+    objectStore.close();
+
+    ObjectStoreImpl restarted = new ObjectStoreImpl();
+    FieldUtils.writeField(restarted, "cacheSize", 1, true);
+    FieldUtils.writeField(restarted, "logPath", path, true);
+    FieldUtils.writeField(restarted, "logCompactInterval", 60000L, true);
+    FieldUtils.writeField(restarted, "symbols", new SymbolTable(), true);
+    restarted.initialize();
+    assertEquals("Latest value should be recovered after a restart", "2",
+        restarted.get(device.getId(), TEST_DESCRIPTOR));
+    assertNull("Removed device's value should not be recovered",
+        restarted.get("removed", TEST_DESCRIPTOR));
+    restarted.close();
+  }
+
+  private ResourceOperation registerObject() {
+    return registerObject(null);
+  }
+
+  private Device registerDevice(String id, ResourceOperation op) {
+    OperationPlan plan = profileStore.getOperationPlan(device, op);
+    Device other = DeviceData.newTestInstance();
+    other.setId(id);
+    other.setName(id);
+    other.setProfile(device.getProfile());
+    when(profileStore.getOperationPlan(other, op)).thenReturn(plan);
+    return other;
+  }
+
+  private ResourceOperation registerObject(IoTType type) {
+    ServiceObject object = new ServiceObject(device.getProfile().getDeviceResources().get(0)) {
+    };
+    ResourceOperation op = new ResourceOperation("get", TEST_OBJECT);
+    op.setParameter(TEST_DESCRIPTOR);
+    OperationPlan plan = new OperationPlan(Collections.singletonList(object),
+        Collections.singletonList(TEST_DESCRIPTOR), Collections.singletonList(type));
+    when(profileStore.getOperationPlan(device, op)).thenReturn(plan);
+    return op;
+  }
 }
@@ -20,7 +20,14 @@ package org.edgexfoundry.device.store;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -28,16 +35,30 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.edgexfoundry.controller.DeviceProfileClient;
 import org.edgexfoundry.controller.ValueDescriptorClient;
+import org.edgexfoundry.device.domain.CommandIndex;
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.edgexfoundry.device.domain.ServiceObject;
 import org.edgexfoundry.device.domain.ServiceObjectFactory;
+import org.edgexfoundry.device.store.impl.DescriptorSynchronizer;
+import org.edgexfoundry.device.store.impl.DeviceSlots;
+import org.edgexfoundry.device.store.impl.ProfileCache;
 import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
+import org.edgexfoundry.device.store.impl.SymbolTable;
 import org.edgexfoundry.domain.common.ValueDescriptor;
 import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.domain.meta.DeviceObject;
 import org.edgexfoundry.domain.meta.DeviceProfile;
+import org.edgexfoundry.domain.meta.ResourceOperation;
 import org.edgexfoundry.test.category.RequiresNone;
 import org.edgexfoundry.test.data.DeviceData;
 import org.edgexfoundry.test.data.ValueDescriptorData;
@@ -47,11 +68,15 @@ import org.junit.experimental.categories.Category;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.yaml.snakeyaml.Yaml;
 
 @Category(RequiresNone.class)
 public class ProfileStoreTest {
 
+  private static final String TEST_OBJECT = "AnalogInput_3000290";
+
+  private static final String TEST_PARAMETER = "CurrentTemperature";
 
   @InjectMocks
   private ProfileStoreImpl profileStore;
@@ -65,14 +90,29 @@ public class ProfileStoreTest {
   @Mock
   private ServiceObjectFactory serviceObjectFactory;
 
+  @Spy
+  private SymbolTable symbols = new SymbolTable();
+
+  @Spy
+  private DeviceSlots deviceSlots = new DeviceSlots();
+
+  @Spy
+  private DescriptorSynchronizer descriptorSynchronizer = new DescriptorSynchronizer();
+
+  @Spy
+  private ProfileCache profileCache = new ProfileCache();
+
   private List<ValueDescriptor> valueDescriptors;
   private ValueDescriptor descriptor;
   private Device device;
   private DeviceProfile profile;
 
   @Before
-  public void setup() throws IOException {
+  public void setup() throws IOException, IllegalAccessException {
     MockitoAnnotations.initMocks(this);
+    FieldUtils.writeField(descriptorSynchronizer, "valueDescriptorClient", valueDescriptorClient,
+        true);
+    FieldUtils.writeField(profileCache, "deviceProfileClient", deviceProfileClient, true);
     descriptor = ValueDescriptorData.newTestInstance();
     valueDescriptors = new ArrayList<>();
     valueDescriptors.add(descriptor);
@@ -89,18 +129,44 @@ public class ProfileStoreTest {
     return yaml.loadAs(yamlContent, DeviceProfile.class);
   }
 
+  private Device newDevice(String name, DeviceProfile profile) {
+    Device created = DeviceData.newTestInstance();
+    created.setName(name);
+    created.setId(name);
+    created.setProfile(profile);
+    return created;
+  }
+
   @Test
   public void testDescriptorExists() throws IllegalAccessException {
-    FieldUtils.writeField(profileStore, "valueDescriptors", valueDescriptors, true);
+    FieldUtils.writeField(profileStore, "valueDescriptors", descriptorIndex(), true);
     assertTrue("Value descriptor not found in cached list of value descriptors",
         profileStore.descriptorExists(descriptor.getName()));
   }
 
   @Test
   public void testDescriptorExistsNotFound() throws IllegalAccessException {
-    FieldUtils.writeField(profileStore, "valueDescriptors", valueDescriptors, true);
+    FieldUtils.writeField(profileStore, "valueDescriptors", descriptorIndex(), true);
     assertFalse("Non existent value descriptor found in list of value descriptors",
         profileStore.descriptorExists("UNKNOWN"));
+    assertFalse("Null name should not be found", profileStore.descriptorExists(null));
+  }
+
+  @Test
+  public void testGetValueDescriptor() throws IllegalAccessException {
+    FieldUtils.writeField(profileStore, "valueDescriptors", descriptorIndex(), true);
+    assertSame("Value descriptor should be found by name", descriptor,
+        profileStore.getValueDescriptor(descriptor.getName()));
+    assertNull("Unknown value descriptor should not be found",
+        profileStore.getValueDescriptor("UNKNOWN"));
+  }
+
+  private Map<String, ValueDescriptor> descriptorIndex() {
+    Map<String, ValueDescriptor> index = new ConcurrentHashMap<>();
+    for (ValueDescriptor valueDescriptor : valueDescriptors) {
+      index.put(valueDescriptor.getName(), valueDescriptor);
+    }
+    return index;
   }
 
   @Test
@@ -135,18 +201,257 @@ public class ProfileStoreTest {
   }
 
   @Test
-  public void testUpdateDevice() {
+  public void testGetOperationPlan() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+    profileStore.addDevice(device);
+    ResourceOperation operation = new ResourceOperation("get", TEST_OBJECT);
+    operation.setParameter(TEST_PARAMETER);
+    OperationPlan plan = profileStore.getOperationPlan(device, operation);
+    assertEquals("Plan should report the value under the parameter",
+        Collections.singletonList(TEST_PARAMETER), plan.getObjectNames());
+    assertEquals("Plan should carry the profile object", TEST_OBJECT,
+        plan.getObjects().get(0).getName());
+    assertTrue("Plan should be bound to the symbol table", plan.isBound());
+    assertEquals("Plan should carry the parameter's symbol", symbols.lookup(TEST_PARAMETER),
+        plan.getObjectSymbol(0));
+    assertEquals("Plan should carry the device's slot", deviceSlots.lookup(device.getId()),
+        plan.getDeviceSlot());
+    assertTrue("Device should have a slot", plan.getDeviceSlot() >= 0);
+    assertSame("Plan should be cached", plan, profileStore.getOperationPlan(device, operation));
+    profileStore.removeDevice(device);
+    assertTrue("Plan should be discarded when the device is removed",
+        profileStore.getOperationPlan(device, operation).isEmpty());
+    assertEquals("Device's slot should be released", -1, deviceSlots.lookup(device.getId()));
+  }
+
+  @Test
+  public void testGetCommandIndex() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    profileStore.addDevice(device);
+    CommandIndex index = profileStore.getCommandIndex();
+    ResourceOperation[] operations =
+        index.getOperations(device.getName(), TEST_PARAMETER.toUpperCase(), "GET");
+    assertEquals("Command should be found regardless of case", 1, operations.length);
+    assertSame("Index should hold the profile's operation",
+        profileStore.getCommands().get(device.getName()).get(TEST_PARAMETER.toLowerCase())
+            .get("get").get(0),
+        operations[0]);
+    assertNull("Unknown command should not be found",
+        index.getOperations(device.getName(), "UNKNOWN", "get"));
+    assertSame("Index should be reused while nothing changes", index,
+        profileStore.getCommandIndex());
+    profileStore.removeDevice(device);
+    assertNull("Removed device should leave the index",
+        profileStore.getCommandIndex().getTable(device.getName()));
+    assertEquals("Earlier index should be unchanged", 1,
+        index.getOperations(device.getName(), TEST_PARAMETER, "get").length);
+  }
+
+  @Test
+  public void testIncompletePlanNotCached() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+    profileStore.addDevice(device);
+    // a profile object whose value descriptor is not known
+    ResourceOperation operation = new ResourceOperation("get", TEST_OBJECT);
+    operation.setParameter("UNKNOWN");
+    OperationPlan plan = profileStore.getOperationPlan(device, operation);
+    assertTrue("Plan of an object without a descriptor should be empty", plan.isEmpty());
+    assertNotSame("Incomplete plan should be resolved again", plan,
+        profileStore.getOperationPlan(device, operation));
+  }
+
+  @Test
+  public void testUnknownSecondaryPlanCached() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+    profileStore.addDevice(device);
+    ResourceOperation operation = new ResourceOperation("get", TEST_OBJECT);
+    operation.setParameter(TEST_PARAMETER);
+    operation.setSecondary(Collections.singletonList("UNKNOWN"));
+    OperationPlan plan = profileStore.getOperationPlan(device, operation);
+    assertEquals("Secondary that is not a profile object should be left out",
+        Collections.singletonList(TEST_PARAMETER), plan.getObjectNames());
+    assertSame("Plan should be cached", plan, profileStore.getOperationPlan(device, operation));
+  }
+
+  @Test
+  public void testGetDevicesByProfile() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    profileStore.addDevice(device);
+    assertEquals("Device should be indexed by its profile", Collections.singletonList(device),
+        profileStore.getDevices(profile.getName()));
+    assertTrue("Other profiles should have no devices",
+        profileStore.getDevices("UNKNOWN").isEmpty());
+    profileStore.removeDevice(device);
+    assertTrue("Removed device should leave the index",
+        profileStore.getDevices(profile.getName()).isEmpty());
+  }
+
+  @Test
+  public void testSharedProfileTables() throws IllegalAccessException {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    Device other = newDevice("other", profile);
+    profileStore.addDevice(device);
+    profileStore.addDevice(other);
+    assertSame("Devices of a profile should share its objects",
+        profileStore.getObjects().get(device.getName()), profileStore.getObjects().get("other"));
+    assertSame("Devices of a profile should share its commands",
+        profileStore.getCommands().get(device.getName()), profileStore.getCommands().get("other"));
+    verify(valueDescriptorClient, times(1)).valueDescriptors();
+    profileStore.removeDevice(device);
+    profileStore.removeDevice(other);
+    assertTrue("Tables should be dropped with the profile's last device",
+        ((Map<?, ?>) FieldUtils.readField(profileStore, "profileTables", true)).isEmpty());
+  }
+
+  @Test
+  public void testFailedProfileTablesNotKept() throws IllegalAccessException {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenThrow(new IllegalStateException("unavailable"))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+    try {
+      profileStore.addDevice(device);
+      fail("Compile failure should reach the caller");
+    } catch (IllegalStateException e) {
+      assertEquals("Compile failure should reach the caller", "unavailable", e.getMessage());
+    }
+    assertTrue("Failed tables should not be kept",
+        ((Map<?, ?>) FieldUtils.readField(profileStore, "profileTables", true)).isEmpty());
+
+    profileStore.addDevice(device);
+    assertFalse("Tables should be compiled again on the next add",
+        profileStore.getObjects().get(device.getName()).isEmpty());
+  }
+
+  @Test
+  public void testSynchronizeDescriptors() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    Device other = newDevice("other", profile);
+    AtomicInteger added = new AtomicInteger();
+    when(valueDescriptorClient.add(any(ValueDescriptor.class)))
+        .thenAnswer(invocation -> "id-" + added.incrementAndGet());
+    profileStore.synchronizeDescriptors(Arrays.asList(device, other));
+    int synchronizedCount = added.get();
+    assertTrue("Missing descriptors should be created", synchronizedCount > 0);
+    profileStore.addDevice(device);
+    profileStore.addDevice(other);
+    assertEquals("Value descriptors should be in cache", 2,
+        profileStore.getValueDescriptors().size());
+    assertEquals("Adding the devices should create no more descriptors", synchronizedCount,
+        added.get());
+    verify(valueDescriptorClient, times(1)).valueDescriptors();
+  }
+
+  @Test
+  public void testDescriptorDownloadRetried() throws IllegalAccessException {
+    FieldUtils.writeField(descriptorSynchronizer, "refreshInterval", 0L, true);
+    FieldUtils.writeField(descriptorSynchronizer, "retryDelay", 0L, true);
+    when(valueDescriptorClient.valueDescriptors())
+        .thenThrow(new IllegalStateException("unavailable")).thenReturn(valueDescriptors);
+    assertNull("Failed download should leave the catalogue empty",
+        descriptorSynchronizer.get(descriptor.getName()));
+    assertSame("Failed download should be tried again on next use", descriptor,
+        descriptorSynchronizer.get(descriptor.getName()));
+    descriptorSynchronizer.get(descriptor.getName());
+    verify(valueDescriptorClient, times(2)).valueDescriptors();
+  }
+
+  @Test
+  public void testDescriptorDownloadBackoff() throws IllegalAccessException {
+    FieldUtils.writeField(descriptorSynchronizer, "retryDelay", 60000L, true);
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(null).thenReturn(valueDescriptors);
+    assertNull("Empty download should leave the catalogue empty",
+        descriptorSynchronizer.get(descriptor.getName()));
+    assertNull("Download should not be tried again before the delay",
+        descriptorSynchronizer.get(descriptor.getName()));
+    verify(valueDescriptorClient, times(1)).valueDescriptors();
+    FieldUtils.writeField(descriptorSynchronizer, "retryAt", 0L, true);
+    assertSame("Download should be tried again after the delay", descriptor,
+        descriptorSynchronizer.get(descriptor.getName()));
+    verify(valueDescriptorClient, times(2)).valueDescriptors();
+  }
+
+  @Test
+  public void testProfileCache() throws IllegalAccessException {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(deviceProfileClient.deviceProfileForName(profile.getName())).thenReturn(profile);
+    FieldUtils.writeField(profileCache, "ttl", 60000L, true);
+    profile.setId("profile-id");
+    DeviceProfile named = new DeviceProfile();
+    named.setName(profile.getName());
+    device.setProfile(named);
+    Device other = newDevice("other", named);
+    profileStore.addDevice(device);
+    profileStore.addDevice(other);
+    assertSame("Device's profile should be completed from metadata", profile,
+        device.getProfile());
+    verify(deviceProfileClient, times(1)).deviceProfileForName(profile.getName());
+    profileCache.invalidateById("profile-id");
+    assertSame("Invalidated profile should be fetched again", profile,
+        profileCache.get(profile.getName()));
+    verify(deviceProfileClient, times(2)).deviceProfileForName(profile.getName());
+  }
+
+  @Test
+  public void testOverrideObject() {
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+    Device other = newDevice("other", profile);
+    profileStore.addDevice(device);
+    profileStore.addDevice(other);
+    ResourceOperation operation = new ResourceOperation("get", TEST_OBJECT);
+    operation.setParameter(TEST_PARAMETER);
+    OperationPlan plan = profileStore.getOperationPlan(device, operation);
+    ServiceObject shared = profileStore.getObjects().get("other").get(TEST_OBJECT);
+    ServiceObject override = new ServiceObject(shared) {
+    };
+    profileStore.overrideObject(device, override);
+    assertSame("Device should see its override", override,
+        profileStore.getObjects().get(device.getName()).get(TEST_OBJECT));
+    assertSame("Other devices should keep the shared object", shared,
+        profileStore.getObjects().get("other").get(TEST_OBJECT));
+    OperationPlan overridden = profileStore.getOperationPlan(device, operation);
+    assertNotSame("Plans should be resolved again after an override", plan, overridden);
+    assertSame("Plan should carry the override", override, overridden.getObjects().get(0));
+  }
+
+  @Test
+  public void testUpdateDevice() throws IllegalAccessException {
     when(valueDescriptorClient.valueDescriptors()).thenReturn(valueDescriptors);
     profileStore.addDevice(device);
     assertEquals("Commands should be in cache", 1, profileStore.getCommands().size());
     assertEquals("Objects should be in cache", 1, profileStore.getObjects().size());
     assertEquals("Value descriptors should be in cache", 2,
         profileStore.getValueDescriptors().size());
+    Map<String, ServiceObject> objects = profileStore.getObjects().get(device.getName());
     profileStore.updateDevice(device);
     assertEquals("Commands should be in cache", 1, profileStore.getCommands().size());
     assertEquals("Objects should be in cache", 1, profileStore.getObjects().size());
     assertEquals("Value descriptors should be in cache", 2,
         profileStore.getValueDescriptors().size());
+    assertSame("Update with an unchanged profile should keep its tables", objects,
+        profileStore.getObjects().get(device.getName()));
+
+    profile.setModified(profile.getModified() + 1);
+    profileStore.updateDevice(device);
+    assertNotSame("Update with a new profile version should replace its tables", objects,
+        profileStore.getObjects().get(device.getName()));
+    assertEquals("Tables of the previous profile version should be dropped", 1,
+        ((Map<?, ?>) FieldUtils.readField(profileStore, "profileTables", true)).size());
+    assertEquals("Device should stay indexed under its profile", 1,
+        profileStore.getDevices(profile.getName()).size());
   }
 
 }
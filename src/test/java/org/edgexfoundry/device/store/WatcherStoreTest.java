@@ -27,10 +27,12 @@ import static org.mockito.Mockito.when;
 
 import javax.ws.rs.NotFoundException;
 
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.edgexfoundry.controller.DeviceProfileClient;
 import org.edgexfoundry.controller.DeviceServiceClient;
 import org.edgexfoundry.controller.ProvisionWatcherClient;
 import org.edgexfoundry.device.domain.configuration.BaseProvisionWatcherConfiguration;
+import org.edgexfoundry.device.store.impl.ProfileCache;
 import org.edgexfoundry.device.store.impl.WatcherStoreImpl;
 import org.edgexfoundry.domain.meta.Addressable;
 import org.edgexfoundry.domain.meta.DeviceProfile;
@@ -47,6 +49,7 @@ import org.junit.experimental.categories.Category;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 @Category(RequiresNone.class)
 public class WatcherStoreTest {
@@ -70,9 +73,13 @@ public class WatcherStoreTest {
   @Mock
   private DeviceServiceClient serviceClient;
 
+  @Spy
+  private ProfileCache profileCache = new ProfileCache();
+
   @Before
-  public void setup() {
+  public void setup() throws IllegalAccessException {
     MockitoAnnotations.initMocks(this);
+    FieldUtils.writeField(profileCache, "deviceProfileClient", profileClient, true);
   }
 
   @Test
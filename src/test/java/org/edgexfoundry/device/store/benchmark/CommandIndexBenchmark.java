@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.edgexfoundry.device.domain.CommandIndex;
+import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.domain.meta.ResourceOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lookup of a device's operations for a command as a command handler receives it, in the case the
+ * caller used, through the compiled command index against the nested command maps, which need the
+ * command and operation names lower cased first. Run with -prof gc to compare allocation.
+ * 
+ * Run from the IDE or with the test classpath:
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ *     org.edgexfoundry.device.store.benchmark.CommandIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandIndexBenchmark {
+
+  private static final String COMMAND = "CurrentTemperature";
+
+  private static final String OPERATION = "Get";
+
+  @Param({"100", "10000"})
+  public int deviceCount;
+
+  private Map<String, Map<String, Map<String, List<ResourceOperation>>>> commands;
+
+  private CommandIndex index;
+
+  // characters of each device name, made into a new string by every lookup
+  private char[][] deviceNames;
+
+  @Setup
+  public void setup() throws IOException, IllegalAccessException {
+    StoreFixture fixture = new StoreFixture(deviceCount, 1);
+    ProfileStoreImpl profileStore = fixture.getProfileStore();
+    commands = profileStore.getCommands();
+    index = profileStore.getCommandIndex();
+
+    Device[] devices = fixture.getDevices();
+    deviceNames = new char[devices.length][];
+    for (int i = 0; i < devices.length; i++) {
+      deviceNames[i] = devices[i].getName().toCharArray();
+    }
+  }
+
+  @Benchmark
+  public List<ResourceOperation> mapLookup() {
+    Map<String, Map<String, List<ResourceOperation>>> deviceCommands =
+        commands.get(nextDeviceName());
+    if (deviceCommands == null) {
+      return null;
+    }
+    Map<String, List<ResourceOperation>> operations = deviceCommands.get(COMMAND.toLowerCase());
+    return operations == null ? null : operations.get(OPERATION.toLowerCase());
+  }
+
+  @Benchmark
+  public ResourceOperation[] indexLookup() {
+    return index.getOperations(nextDeviceName(), COMMAND, OPERATION);
+  }
+
+  /**
+   * A new string on every call, as a name parsed from a request would be: its hash is not cached
+   * yet and it is not the instance the maps hold. Copying the characters is part of both lookups'
+   * cost.
+   */
+  private String nextDeviceName() {
+    return new String(deviceNames[ThreadLocalRandom.current().nextInt(deviceNames.length)]);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(CommandIndexBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.edgexfoundry.device.store.impl.ObjectStoreImpl;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.domain.meta.ResourceOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Put throughput of the object store as the number of polling threads grows. Each thread writes to
+ * randomly chosen devices, so with per device locking the throughput should scale with the thread
+ * count until the cores are saturated.
+ * 
+ * Run from the IDE or with the test classpath:
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ *     org.edgexfoundry.device.store.benchmark.ObjectStoreContentionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectStoreContentionBenchmark {
+
+  private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+  @Param({"2000"})
+  public int deviceCount;
+
+  private ObjectStoreImpl objectStore;
+
+  private Device[] devices;
+
+  private ResourceOperation operation;
+
+  @Setup
+  public void setup() throws IOException, IllegalAccessException {
+    StoreFixture fixture = new StoreFixture(deviceCount, 10);
+    objectStore = fixture.getObjectStore();
+    devices = fixture.getDevices();
+    operation = fixture.getOperation("CurrentTemperature");
+  }
+
+  @Benchmark
+  public void put() {
+    Device device = devices[ThreadLocalRandom.current().nextInt(devices.length)];
+    objectStore.put(device, operation, "72.5");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : THREAD_COUNTS) {
+      Options options = new OptionsBuilder()
+          .include(ObjectStoreContentionBenchmark.class.getSimpleName()).threads(threads).build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.edgexfoundry.device.domain.OperationPlan;
+import org.edgexfoundry.device.store.impl.ObjectStoreImpl;
+import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
+import org.edgexfoundry.domain.core.Reading;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.domain.meta.ResourceOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Single threaded put and get latency of the object store, which finds a device's entry through
+ * the dense slot bound into its operation plans and its objects through int symbols, against a
+ * store laid out as the original nested maps keyed by device id and object name. Both stores are
+ * given the same resolved plans, so the difference is the cost of reaching the stored data.
+ * 
+ * Run from the IDE or with the test classpath:
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ *     org.edgexfoundry.device.store.benchmark.ObjectStoreLayoutBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectStoreLayoutBenchmark {
+
+  private static final String OBJECT = "CurrentTemperature";
+
+  @Param({"100", "10000"})
+  public int deviceCount;
+
+  private ObjectStoreImpl objectStore;
+
+  private ProfileStoreImpl profileStore;
+
+  private MapStore mapStore;
+
+  private Device[] devices;
+
+  private ResourceOperation operation;
+
+  @Setup
+  public void setup() throws IOException, IllegalAccessException {
+    StoreFixture fixture = new StoreFixture(deviceCount, 1);
+    objectStore = fixture.getObjectStore();
+    profileStore = fixture.getProfileStore();
+    devices = fixture.getDevices();
+    operation = fixture.getOperation(OBJECT);
+    mapStore = new MapStore();
+
+    for (Device device : devices) {
+      objectStore.put(device, operation, "72.5");
+      mapStore.put(device, profileStore.getOperationPlan(device, operation), "72.5");
+    }
+  }
+
+  @Benchmark
+  public void slotPut() {
+    objectStore.put(nextDevice(), operation, "72.5");
+  }
+
+  @Benchmark
+  public void mapPut() {
+    Device device = nextDevice();
+    mapStore.put(device, profileStore.getOperationPlan(device, operation), "72.5");
+  }
+
+  @Benchmark
+  public String slotGet() {
+    return objectStore.get(nextDevice().getId(), OBJECT);
+  }
+
+  @Benchmark
+  public String mapGet() {
+    return mapStore.get(nextDevice().getId(), OBJECT);
+  }
+
+  private Device nextDevice() {
+    return devices[ThreadLocalRandom.current().nextInt(devices.length)];
+  }
+
+  /**
+   * The object store's original layout: histories and responses in maps keyed by device id and
+   * then object name or operation id, guarded by a lock on each map.
+   */
+  private static final class MapStore {
+
+    private final Map<String, Map<String, List<String>>> objectCache = new HashMap<>();
+
+    private final Map<String, Map<String, List<Reading>>> responseCache = new HashMap<>();
+
+    void put(Device device, OperationPlan plan, String value) {
+      String deviceId = device.getId();
+      List<Reading> readings = new ArrayList<>();
+
+      for (String objectName : plan.getObjectNames()) {
+        Reading reading = new Reading();
+        reading.setName(objectName);
+        reading.setValue(value);
+        reading.setDevice(device.getName());
+        reading.setOrigin(System.currentTimeMillis());
+        readings.add(reading);
+
+        synchronized (objectCache) {
+          if (objectCache.get(deviceId) == null) {
+            objectCache.put(deviceId, new HashMap<>());
+          }
+          if (objectCache.get(deviceId).get(objectName) == null) {
+            objectCache.get(deviceId).put(objectName, new ArrayList<>());
+          }
+          objectCache.get(deviceId).get(objectName).add(0, value);
+          if (objectCache.get(deviceId).get(objectName).size() > 1) {
+            objectCache.get(deviceId).get(objectName).remove(1);
+          }
+        }
+      }
+
+      synchronized (responseCache) {
+        if (responseCache.get(deviceId) == null) {
+          responseCache.put(deviceId, new HashMap<>());
+        }
+        responseCache.get(deviceId).put(plan.getOperationId(), readings);
+      }
+    }
+
+    String get(String deviceId, String objectName) {
+      synchronized (objectCache) {
+        if (objectCache.get(deviceId) == null
+            || objectCache.get(deviceId).get(objectName) == null) {
+          return null;
+        }
+        return objectCache.get(deviceId).get(objectName).get(0);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(ObjectStoreLayoutBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.benchmark;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.edgexfoundry.controller.DeviceProfileClient;
+import org.edgexfoundry.controller.ValueDescriptorClient;
+import org.edgexfoundry.device.domain.ServiceObject;
+import org.edgexfoundry.device.domain.ServiceObjectFactory;
+import org.edgexfoundry.device.store.impl.DescriptorSynchronizer;
+import org.edgexfoundry.device.store.impl.DeviceSlots;
+import org.edgexfoundry.device.store.impl.ObjectStoreImpl;
+import org.edgexfoundry.device.store.impl.ProfileCache;
+import org.edgexfoundry.device.store.impl.ProfileStoreImpl;
+import org.edgexfoundry.device.store.impl.SymbolTable;
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.domain.common.ValueDescriptor;
+import org.edgexfoundry.domain.meta.Device;
+import org.edgexfoundry.domain.meta.DeviceObject;
+import org.edgexfoundry.domain.meta.DeviceProfile;
+import org.edgexfoundry.domain.meta.ProfileResource;
+import org.edgexfoundry.domain.meta.ResourceOperation;
+import org.edgexfoundry.test.data.DeviceData;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Builds a populated profile store and object store outside of Spring for the benchmarks. All
+ * devices share the test profile, so every device exposes the same resources.
+ */
+public class StoreFixture {
+
+  private static final String PROFILE =
+      "./src/test/resources/JC.RR-NAE-9.ConfRoom.Padre.Island.profile.yaml";
+
+  private final ProfileStoreImpl profileStore = new ProfileStoreImpl();
+
+  private final ObjectStoreImpl objectStore = new ObjectStoreImpl();
+
+  private final Device[] devices;
+
+  public StoreFixture(int deviceCount, int cacheSize) throws IOException, IllegalAccessException {
+    ValueDescriptorClient valueDescriptorClient = mock(ValueDescriptorClient.class);
+    when(valueDescriptorClient.valueDescriptors()).thenReturn(descriptors());
+
+    ServiceObjectFactory serviceObjectFactory = mock(ServiceObjectFactory.class);
+    when(serviceObjectFactory.createServiceObject(any(DeviceObject.class)))
+        .thenAnswer(invocation -> new ServiceObject((DeviceObject) invocation.getArguments()[0]) {
+        });
+
+    DescriptorSynchronizer descriptorSynchronizer = new DescriptorSynchronizer();
+    FieldUtils.writeField(descriptorSynchronizer, "valueDescriptorClient", valueDescriptorClient,
+        true);
+
+    FieldUtils.writeField(profileStore, "descriptorSynchronizer", descriptorSynchronizer, true);
+    ProfileCache profileCache = new ProfileCache();
+    FieldUtils.writeField(profileCache, "deviceProfileClient", mock(DeviceProfileClient.class),
+        true);
+    FieldUtils.writeField(profileStore, "profileCache", profileCache, true);
+    FieldUtils.writeField(profileStore, "serviceObjectFactory", serviceObjectFactory, true);
+    SymbolTable symbols = new SymbolTable();
+    FieldUtils.writeField(profileStore, "symbols", symbols, true);
+    FieldUtils.writeField(profileStore, "deviceSlots", new DeviceSlots(), true);
+    FieldUtils.writeField(objectStore, "profileStore", profileStore, true);
+    FieldUtils.writeField(objectStore, "symbols", symbols, true);
+    FieldUtils.writeField(objectStore, "cacheSize", cacheSize, true);
+
+    devices = new Device[deviceCount];
+    for (int i = 0; i < deviceCount; i++) {
+      Device device = DeviceData.newTestInstance();
+      device.setId("device-id-" + i);
+      device.setName("device-" + i);
+      device.setProfile(loadProfile());
+      profileStore.addDevice(device);
+      devices[i] = device;
+    }
+  }
+
+  public ProfileStoreImpl getProfileStore() {
+    return profileStore;
+  }
+
+  public ObjectStoreImpl getObjectStore() {
+    return objectStore;
+  }
+
+  public Device[] getDevices() {
+    return devices;
+  }
+
+  /**
+   * The get operation of the named profile resource.
+   */
+  public ResourceOperation getOperation(String resourceName) {
+    for (ProfileResource resource : devices[0].getProfile().getResources()) {
+      if (resource.getName().equals(resourceName)) {
+        return resource.getGet().get(0);
+      }
+    }
+    throw new IllegalArgumentException("No resource named " + resourceName);
+  }
+
+  private List<ValueDescriptor> descriptors() {
+    List<ValueDescriptor> descriptors = new ArrayList<>();
+    descriptors.add(descriptor("CurrentTemperature"));
+    descriptors.add(descriptor("SetPoint"));
+    return descriptors;
+  }
+
+  private ValueDescriptor descriptor(String name) {
+    return new ValueDescriptor(name, "-99.99", "199.99", IoTType.F, "Degrees Fahrenheit", "0.00",
+        "%s", null, name);
+  }
+
+  private DeviceProfile loadProfile() throws IOException {
+    Path path = Paths.get(PROFILE);
+    String yamlContent = new String(Files.readAllBytes(path));
+    return new Yaml().loadAs(yamlContent, DeviceProfile.class);
+  }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.edgexfoundry.test.category.RequiresNone;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(RequiresNone.class)
+public class HistoryBlockTest {
+
+  @Test
+  public void testIrregularTimestamps() {
+    // deltas of delta at the edges of each encoding width, and decreasing timestamps
+    long[] timestamps = {1000, 1010, 1020, 1083, 1082, 2000, 1744, 3791, 1743, 1743, 5792,
+        1000000000000L, 999999999999L, Long.MAX_VALUE / 2, 0, 0};
+    roundTrip(timestamps, new long[timestamps.length], true);
+  }
+
+  @Test
+  public void testRepeatedValues() {
+    long[] values = {42, 42, 42, 7, 7, 42, 42};
+    roundTrip(evenly(values.length), values, true);
+  }
+
+  @Test
+  public void testMeaningfulBits() {
+    long[] values = {
+        // 64 meaningful bits, written as 0
+        0, 0x8000000000000001L, 0,
+        // more than 31 leading zeros, capped at 31
+        1, 3, 2,
+        // a window reused from the previous value, then a wider one
+        0x10, 0x30, 0x20, 0xff00000000000000L, 0x0100000000000001L};
+    roundTrip(evenly(values.length), values, true);
+  }
+
+  @Test
+  public void testLongExtremes() {
+    long[] values = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, Long.MIN_VALUE, Long.MIN_VALUE, 1,
+        Long.MAX_VALUE};
+    roundTrip(evenly(values.length), values, true);
+  }
+
+  @Test
+  public void testDoubleExtremes() {
+    double[] doubles = {0.0, -0.0, Double.NaN, Double.NaN, Double.MAX_VALUE, -Double.MAX_VALUE,
+        Double.MIN_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 20.5, 20.5, 21.0};
+    long[] values = new long[doubles.length];
+    for (int i = 0; i < doubles.length; i++) {
+      values[i] = Double.doubleToRawLongBits(doubles[i]);
+    }
+    // the raw bits are compared, so NaN and negative zero must come back exactly
+    roundTrip(evenly(values.length), values, false);
+  }
+
+  @Test
+  public void testSingleSample() {
+    roundTrip(new long[] {Long.MIN_VALUE}, new long[] {Long.MAX_VALUE}, true);
+  }
+
+  private static long[] evenly(int count) {
+    long[] timestamps = new long[count];
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = 1500000000000L + 1000L * i;
+    }
+    return timestamps;
+  }
+
+  /**
+   * Seal a block of the samples and check every sample decodes to the same position, timestamp
+   * and bits.
+   */
+  private static void roundTrip(long[] timestamps, long[] values, boolean integral) {
+    HistoryBlock sealed = HistoryBlock.raw(100, integral, timestamps, values).seal();
+    assertTrue("Block should be sealed", sealed.isSealed());
+    assertEquals("Sealed block should keep the sample count", values.length, sealed.getCount());
+
+    List<long[]> samples = new ArrayList<>();
+    sealed.forEach((position, timestamp, value) -> samples
+        .add(new long[] {position, timestamp, value}));
+    assertEquals("Every sample should be decoded", values.length, samples.size());
+
+    for (int i = 0; i < values.length; i++) {
+      long[] sample = samples.get(i);
+      assertEquals("Position of sample " + i, 100 + i, sample[0]);
+      assertEquals("Timestamp of sample " + i, timestamps[i], sample[1]);
+      assertEquals("Value bits of sample " + i, values[i], sample[2]);
+    }
+  }
+}
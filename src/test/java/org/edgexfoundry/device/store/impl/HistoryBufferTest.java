@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2016-2017 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @microservice: device-domain
+ * @author: Jim White, Dell
+ * @version: 1.0.0
+ *******************************************************************************/
+
+package org.edgexfoundry.device.store.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.edgexfoundry.domain.common.IoTType;
+import org.edgexfoundry.test.category.RequiresNone;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(RequiresNone.class)
+public class HistoryBufferTest {
+
+  @Test
+  public void testViewDetectsSlotBeingWritten() {
+    AtomicReference<List<String>> view = new AtomicReference<>();
+    AtomicReference<Object> seen = new AtomicReference<>();
+    // reads the view's oldest value while the writer is part way through overwriting its slot
+    HistoryBuffer history = new HistoryBuffer.StringHistory(2) {
+      @Override
+      protected void store(int slot) {
+        if (view.get() != null) {
+          try {
+            seen.set(view.get().get(1));
+          } catch (ConcurrentModificationException e) {
+            seen.set(e);
+          }
+        }
+        super.store(slot);
+      }
+    };
+    history.add("1", 1);
+    history.add("2", 2);
+    view.set(history.latest(2));
+    assertEquals("View should hold the values added", "1", view.get().get(1));
+
+    history.add("3", 3);
+    assertTrue("Slot being overwritten should not be read as the view's value",
+        seen.get() instanceof ConcurrentModificationException);
+  }
+
+  @Test
+  public void testDoubleFormat() {
+    HistoryBuffer history = HistoryBuffer.create(IoTType.F, 1);
+    String[][] cases = {{"72.50", "72.5"}, {"12345678.9", "12345678.9"}, {"1e3", "1000.0"},
+        {"1e20", "100000000000000000000.0"}, {"0.00001", "0.00001"}, {"-2.5E-4", "-0.00025"},
+        {"1.5f", "1.5"}, {"0x1p3", "8.0"}, {"-0.0", "-0.0"}, {"NaN", "NaN"},
+        {"-Infinity", "-Infinity"}};
+    for (String[] example : cases) {
+      history.add(example[0], 1);
+      assertEquals("Decimal " + example[0] + " should read back in plain form", example[1],
+          history.latest());
+    }
+  }
+
+  @Test
+  public void testReadsAfterLaps() {
+    HistoryBuffer history = HistoryBuffer.create(null, 3);
+    for (int i = 1; i <= 5; i++) {
+      history.add(Integer.toString(i), i);
+    }
+    assertEquals("Range should hold the values still in the ring", 3,
+        history.range(0, 10, "device", "object").size());
+    assertEquals("Latest value should be the newest", "5", history.latest());
+    assertEquals("Latest capture time should be the newest", 5, history.latestTimestamp());
+  }
+}